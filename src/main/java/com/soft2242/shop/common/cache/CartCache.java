@@ -0,0 +1,391 @@
+package com.soft2242.shop.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.soft2242.shop.entity.UserShoppingCart;
+import com.soft2242.shop.mapper.UserShoppingCartMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.*;
+
+/**
+ * Redis 购物车
+ * <p>
+ * 每个用户的购物车保存为一个 hash，首次访问时从数据库加载；数量和选中状态的修改、删除只写 Redis，
+ * 同时记录到待回写 hash 中，由定时任务合并后批量回写数据库。加入新商品需要数据库生成的主键，仍然直接写库；
+ * 加入已有的商品时在 Redis 中原子地累加数量
+ */
+@Slf4j
+@Component
+public class CartCache {
+
+    /**
+     * 购物车 hash 中标记已从数据库加载的 field，购物车id从1开始，不会冲突
+     */
+    private static final String LOADED_FIELD = "loaded";
+
+    private static final String OP_UPDATE = "U";
+
+    private static final String OP_REMOVE = "D";
+
+    private static final String FLUSH_LOCK = "cart:flush:lock";
+
+    /**
+     * 加载购物车：已加载(存在 loaded 标记)时不覆盖，避免并发加载时用数据库中的旧数据覆盖 Redis 中的新修改。
+     * ARGV[1] 为 loaded 标记的 field，之后依次为 field、value
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then return 0 end " +
+        "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+        "return 1", Long.class);
+
+    /**
+     * 比较并替换购物车中的单品：当前值与 ARGV[2] 相同时写入 ARGV[3]，并记录待回写变更和待回写用户。
+     * KEYS 依次为购物车 hash、待回写 hash、待回写用户集合；ARGV[1] 为 field，ARGV[4] 为修改标记，ARGV[5] 为用户id
+     */
+    private static final RedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('hget', KEYS[1], ARGV[1]) ~= ARGV[2] then return 0 end " +
+        "redis.call('hset', KEYS[1], ARGV[1], ARGV[3]) " +
+        "redis.call('hset', KEYS[2], ARGV[1], ARGV[4]) " +
+        "redis.call('sadd', KEYS[3], ARGV[5]) " +
+        "return 1", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private UserShoppingCartMapper userShoppingCartMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 是否启用 Redis 购物车
+     */
+    @Value("${shop.cart.redis-enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 购物车在 Redis 中的过期时间(分钟)，每次访问时续期
+     */
+    @Value("${shop.cart.expire:30}")
+    private long expire;
+
+    /**
+     * 每轮回写的最大用户数
+     */
+    @Value("${shop.cart.flush-batch-size:200}")
+    private long flushBatchSize;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询用户购物车，按购物车id排序
+     *
+     * @param userId 用户id
+     * @return 购物车列表
+     */
+    public List<UserShoppingCart> getItems(Integer userId) {
+        String key = ensureLoaded(userId);
+        return redisTemplate.opsForHash().values(key).stream()
+            .filter(UserShoppingCart.class::isInstance)
+            .map(UserShoppingCart.class::cast)
+            .sorted(Comparator.comparing(UserShoppingCart::getId))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 批量查询用户购物车中的商品，不属于该用户的id会被忽略
+     *
+     * @param userId 用户id
+     * @param ids 购物车id列表
+     * @return 购物车列表
+     */
+    public List<UserShoppingCart> getItems(Integer userId, Collection<Integer> ids) {
+        String key = ensureLoaded(userId);
+        List<Object> fields = ids.stream().map(String::valueOf).collect(Collectors.toList());
+        List<UserShoppingCart> items = new ArrayList<>();
+        for (Object value : redisTemplate.opsForHash().multiGet(key, fields)) {
+            if (value instanceof UserShoppingCart) {
+                items.add((UserShoppingCart) value);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 查询购物车中同一商品和属性的记录
+     *
+     * @param userId 用户id
+     * @param goodsId 商品id
+     * @param attrsText 商品属性
+     * @return 购物车信息，不存在时返回 null
+     */
+    public UserShoppingCart findItem(Integer userId, String goodsId, String attrsText) {
+        return getItems(userId).stream()
+            .filter(item -> item.getGoodsId().equals(goodsId) && Objects.equals(item.getAttrsText(), attrsText))
+            .findFirst().orElse(null);
+    }
+
+    /**
+     * 原子地累加购物车中单品的数量：读取当前值后由脚本比较并替换，期间被其他请求修改时重新读取再累加，
+     * 并发加入同一商品时不会丢失数量
+     *
+     * @param userId 用户id
+     * @param id 购物车id
+     * @param count 增加的数量
+     * @return 累加后的购物车信息，该商品已不在购物车中时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public UserShoppingCart addCount(Integer userId, Integer id, int count) {
+        String key = ensureLoaded(userId);
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<String> fieldSerializer = (RedisSerializer<String>) redisTemplate.getHashKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        byte[] rawKey = keySerializer.serialize(key);
+        byte[] rawField = fieldSerializer.serialize(String.valueOf(id));
+        while (true) {
+            byte[] current = redisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.hashCommands().hGet(rawKey, rawField));
+            Object value = current == null ? null : valueSerializer.deserialize(current);
+            if (!(value instanceof UserShoppingCart)) {
+                return null;
+            }
+            UserShoppingCart item = (UserShoppingCart) value;
+            item.setCount(item.getCount() + count);
+            Long replaced = redisTemplate.execute(REPLACE_SCRIPT, RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class),
+                List.of(key, CART_PENDING + userId, CART_DIRTY_USERS),
+                rawField, current, valueSerializer.serialize(item), valueSerializer.serialize(OP_UPDATE),
+                ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(userId));
+            if (Long.valueOf(1).equals(replaced)) {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * 新加入的商品已写入数据库，购物车已加载时同步放入 Redis，未加载时等下次访问从数据库加载
+     *
+     * @param userId 用户id
+     * @param item 购物车信息
+     * @return 是否已放入 Redis
+     */
+    public boolean addItem(Integer userId, UserShoppingCart item) {
+        String key = CART_ITEMS + userId;
+        if (!Boolean.TRUE.equals(redisTemplate.opsForHash().hasKey(key, LOADED_FIELD))) {
+            return false;
+        }
+        String field = String.valueOf(item.getId());
+        if (OP_REMOVE.equals(redisTemplate.opsForHash().get(CART_PENDING + userId, field))) {
+            // 删除尚未回写时重新加入，数据库中的旧记录被累加了数量，以本次加入的数量覆盖并撤销删除
+            updateItems(userId, List.of(item));
+        } else {
+            redisTemplate.opsForHash().put(key, field, item);
+        }
+        return true;
+    }
+
+    /**
+     * 修改购物车商品，变更等待回写数据库
+     *
+     * @param userId 用户id
+     * @param items 修改后的购物车信息
+     */
+    public void updateItems(Integer userId, Collection<UserShoppingCart> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<String, Object> values = new HashMap<>();
+        Map<String, Object> ops = new HashMap<>();
+        for (UserShoppingCart item : items) {
+            values.put(String.valueOf(item.getId()), item);
+            ops.put(String.valueOf(item.getId()), OP_UPDATE);
+        }
+        write(userId, values, List.of(), ops);
+    }
+
+    /**
+     * 删除购物车商品，变更等待回写数据库
+     *
+     * @param userId 用户id
+     * @param items 需要删除的购物车信息
+     */
+    public void removeItems(Integer userId, Collection<UserShoppingCart> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Object> fields = new ArrayList<>();
+        Map<String, Object> ops = new HashMap<>();
+        for (UserShoppingCart item : items) {
+            fields.add(String.valueOf(item.getId()));
+            ops.put(String.valueOf(item.getId()), OP_REMOVE);
+        }
+        write(userId, Map.of(), fields, ops);
+    }
+
+    /**
+     * 定时把待回写的购物车变更批量写入数据库，同一商品的多次修改只写最后一次
+     */
+    @Scheduled(fixedDelayString = "${shop.cart.flush-interval:2000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        // 多节点部署时同一时刻只允许一个节点回写
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(FLUSH_LOCK, 1, Duration.ofSeconds(30));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            List<Object> userIds = redisTemplate.opsForSet().pop(CART_DIRTY_USERS, flushBatchSize);
+            if (userIds == null) {
+                return;
+            }
+            for (Object userId : userIds) {
+                try {
+                    flushUser((Integer) userId);
+                } catch (Exception e) {
+                    log.error("购物车回写失败，用户id：{}", userId, e);
+                    redisTemplate.opsForSet().add(CART_DIRTY_USERS, userId);
+                }
+            }
+        } finally {
+            redisTemplate.delete(FLUSH_LOCK);
+        }
+    }
+
+    /**
+     * 确保用户购物车已从数据库加载到 Redis，并续期
+     *
+     * @param userId 用户id
+     * @return 购物车 hash 的 key
+     */
+    private String ensureLoaded(Integer userId) {
+        String key = CART_ITEMS + userId;
+        if (Boolean.TRUE.equals(redisTemplate.opsForHash().hasKey(key, LOADED_FIELD))) {
+            redisTemplate.expire(key, expire, TimeUnit.MINUTES);
+            return key;
+        }
+        List<UserShoppingCart> cartList = userShoppingCartMapper.selectList(
+            new LambdaQueryWrapper<UserShoppingCart>().eq(UserShoppingCart::getUserId, userId));
+        load(key, cartList);
+        redisTemplate.expire(key, expire, TimeUnit.MINUTES);
+        return key;
+    }
+
+    /**
+     * 原子地写入购物车和 loaded 标记，其他线程已先完成加载时放弃本次结果
+     */
+    @SuppressWarnings("unchecked")
+    private void load(String key, List<UserShoppingCart> cartList) {
+        RedisSerializer<String> fieldSerializer = (RedisSerializer<String>) redisTemplate.getHashKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        List<byte[]> args = new ArrayList<>(cartList.size() * 2 + 3);
+        args.add(fieldSerializer.serialize(LOADED_FIELD));
+        for (UserShoppingCart item : cartList) {
+            args.add(fieldSerializer.serialize(String.valueOf(item.getId())));
+            args.add(valueSerializer.serialize(item));
+        }
+        // loaded 标记最后写入
+        args.add(fieldSerializer.serialize(LOADED_FIELD));
+        args.add(valueSerializer.serialize(1));
+        redisTemplate.execute(LOAD_SCRIPT, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+            List.of(key), args.toArray());
+    }
+
+    /**
+     * 在一次管道中写入购物车、待回写变更和待回写用户
+     */
+    @SuppressWarnings("unchecked")
+    private void write(Integer userId, Map<String, Object> values, List<Object> removeFields, Map<String, Object> ops) {
+        String key = CART_ITEMS + userId;
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                if (!values.isEmpty()) {
+                    redis.opsForHash().putAll(key, values);
+                }
+                if (!removeFields.isEmpty()) {
+                    redis.opsForHash().delete(key, removeFields.toArray());
+                }
+                redis.opsForHash().putAll(CART_PENDING + userId, ops);
+                redis.opsForSet().add(CART_DIRTY_USERS, userId);
+                redis.expire(key, expire, TimeUnit.MINUTES);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 将用户的待回写变更改名为处理中的 key 后写入数据库，成功后才删除；
+     * 失败时处理中的 key 保留，下一轮先重试它，再继续处理期间新记录到原 key 的变更
+     */
+    private void flushUser(Integer userId) {
+        String pendingKey = CART_PENDING + userId;
+        String processingKey = pendingKey + PROCESSING_SUFFIX;
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(processingKey))) {
+            flushProcessing(userId, processingKey);
+        }
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(pendingKey))) {
+            redisTemplate.rename(pendingKey, processingKey);
+            flushProcessing(userId, processingKey);
+        }
+    }
+
+    private void flushProcessing(Integer userId, String processingKey) {
+        List<Object> updateFields = new ArrayList<>();
+        List<Integer> removeIds = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(processingKey).entrySet()) {
+            if (OP_REMOVE.equals(entry.getValue())) {
+                removeIds.add(Integer.valueOf(entry.getKey().toString()));
+            } else {
+                updateFields.add(entry.getKey());
+            }
+        }
+        // 修改的商品以 Redis 中的最新值为准；已不在购物车中的说明随后又被删除，对应的删除变更会在下一轮回写
+        List<UserShoppingCart> updateList = new ArrayList<>();
+        if (!updateFields.isEmpty()) {
+            for (Object value : redisTemplate.opsForHash().multiGet(CART_ITEMS + userId, updateFields)) {
+                if (value instanceof UserShoppingCart) {
+                    updateList.add((UserShoppingCart) value);
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updateList.isEmpty()) {
+                userShoppingCartMapper.updateCountAndSelectedBatch(userId, updateList);
+            }
+            if (!removeIds.isEmpty()) {
+                userShoppingCartMapper.deleteByUserIdAndIds(userId, removeIds);
+            }
+        });
+        redisTemplate.delete(processingKey);
+    }
+}
@@ -0,0 +1,175 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.vo.CartSummaryVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.*;
+
+/**
+ * 购物车选中商品汇总缓存
+ * <p>
+ * 每个用户一个 hash，金额以分为单位保存。修改单品时按变化量累加，批量操作时直接失效；
+ * 修改商品价格、运费后({@link com.soft2242.shop.service.GoodsService#updatePrice})递增全局价格版本 cart:summary:version，
+ * 版本不一致的汇总在读取时重新计算。
+ * <p>
+ * 每个用户另有一个修订号，修改前后各递增一次。重新计算的汇总只有在计算期间修订号没有变化时才写入，
+ * 避免覆盖并发的修改；累加变化量时如果汇总是在本次修改开始之后写入的，无法确定是否已包含本次修改，直接删除
+ */
+@Component
+public class CartSummaryCache {
+
+    private static final String FIELD_COUNT = "count";
+
+    private static final String FIELD_PRICE = "price";
+
+    private static final String FIELD_FREIGHT = "freight";
+
+    private static final String FIELD_VERSION = "version";
+
+    private static final String FIELD_REVISION = "revision";
+
+    /**
+     * 递增用户修订号并返回新值
+     */
+    private static final RedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>(
+        "local revision = redis.call('incr', KEYS[1]) " +
+        "redis.call('expire', KEYS[1], ARGV[1]) " +
+        "return revision", Long.class);
+
+    /**
+     * 修订号仍为读取时的值才写入重新计算的汇总
+     */
+    private static final RedisScript<Long> STORE_SCRIPT = new DefaultRedisScript<>(
+        "if (redis.call('get', KEYS[2]) or '0') ~= ARGV[5] then return 0 end " +
+        "redis.call('hset', KEYS[1], 'count', ARGV[1], 'price', ARGV[2], 'freight', ARGV[3], " +
+        "'version', ARGV[4], 'revision', ARGV[5]) " +
+        "redis.call('expire', KEYS[1], ARGV[6]) " +
+        "return 1", Long.class);
+
+    /**
+     * 结束一次修改：递增修订号；汇总在本次修改开始(ARGV[4])之前写入时累加变化量，否则删除，不存在时忽略
+     */
+    private static final RedisScript<Long> APPLY_SCRIPT = new DefaultRedisScript<>(
+        "redis.call('incr', KEYS[2]) " +
+        "redis.call('expire', KEYS[2], ARGV[5]) " +
+        "local revision = redis.call('hget', KEYS[1], 'revision') " +
+        "if not revision then return 0 end " +
+        "if tonumber(revision) >= tonumber(ARGV[4]) then redis.call('del', KEYS[1]) return 0 end " +
+        "redis.call('hincrby', KEYS[1], 'count', ARGV[1]) " +
+        "redis.call('hincrby', KEYS[1], 'price', ARGV[2]) " +
+        "redis.call('hincrby', KEYS[1], 'freight', ARGV[3]) " +
+        "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 汇总缓存过期时间(分钟)
+     */
+    @Value("${shop.cart.summary-expire:10}")
+    private long expire;
+
+    /**
+     * 查询用户购物车汇总，缓存不存在或价格版本已变化时重新计算
+     *
+     * @param userId 用户id
+     * @param loader 重新计算汇总
+     * @return 汇总信息
+     */
+    public CartSummaryVO get(Integer userId, Function<Integer, CartSummaryVO> loader) {
+        String key = CART_SUMMARY + userId;
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+        String version = currentVersion();
+        if (!entries.isEmpty() && version.equals(entries.get(FIELD_VERSION))) {
+            return toSummary(Long.parseLong(entries.get(FIELD_COUNT).toString()),
+                Long.parseLong(entries.get(FIELD_PRICE).toString()),
+                Long.parseLong(entries.get(FIELD_FREIGHT).toString()));
+        }
+        // 先读修订号再计算，计算期间有修改时不写入
+        String revision = stringRedisTemplate.opsForValue().get(CART_SUMMARY_REVISION + userId);
+        CartSummaryVO summary = loader.apply(userId);
+        stringRedisTemplate.execute(STORE_SCRIPT, List.of(key, CART_SUMMARY_REVISION + userId),
+            String.valueOf(summary.getGoodsCount()), String.valueOf(toCent(summary.getTotalPrice())),
+            String.valueOf(toCent(summary.getPostFee())), version, revision == null ? "0" : revision,
+            String.valueOf(TimeUnit.MINUTES.toSeconds(expire)));
+        return summary;
+    }
+
+    /**
+     * 开始修改单品，在修改购物车之前调用
+     *
+     * @param userId 用户id
+     * @return 本次修改的修订号，修改完成后传给 {@link #apply}
+     */
+    public long begin(Integer userId) {
+        Long revision = stringRedisTemplate.execute(BUMP_SCRIPT, List.of(CART_SUMMARY_REVISION + userId),
+            String.valueOf(TimeUnit.MINUTES.toSeconds(expire)));
+        return revision == null ? 0 : revision;
+    }
+
+    /**
+     * 修改完成后累加单品变化量
+     *
+     * @param userId 用户id
+     * @param revision {@link #begin} 返回的修订号
+     * @param count 件数变化量
+     * @param price 金额变化量(分)
+     * @param freight 邮费变化量(分)
+     */
+    public void apply(Integer userId, long revision, long count, long price, long freight) {
+        stringRedisTemplate.execute(APPLY_SCRIPT, List.of(CART_SUMMARY + userId, CART_SUMMARY_REVISION + userId),
+            String.valueOf(count), String.valueOf(price), String.valueOf(freight), String.valueOf(revision),
+            String.valueOf(TimeUnit.MINUTES.toSeconds(expire)));
+    }
+
+    /**
+     * 失效用户购物车汇总，先递增修订号，正在计算的汇总不会再写入
+     *
+     * @param userId 用户id
+     */
+    public void invalidate(Integer userId) {
+        begin(userId);
+        stringRedisTemplate.delete(CART_SUMMARY + userId);
+    }
+
+    /**
+     * 商品价格、运费修改后递增价格版本，所有用户的汇总在下次读取时重新计算
+     */
+    public void bumpVersion() {
+        stringRedisTemplate.opsForValue().increment(CART_SUMMARY_VERSION);
+    }
+
+    /**
+     * 元转分
+     *
+     * @param amount 金额(元)
+     * @return 金额(分)
+     */
+    public static long toCent(Double amount) {
+        return amount == null ? 0 : Math.round(amount * 100);
+    }
+
+    private String currentVersion() {
+        String version = stringRedisTemplate.opsForValue().get(CART_SUMMARY_VERSION);
+        return version == null ? "0" : version;
+    }
+
+    private CartSummaryVO toSummary(long count, long price, long freight) {
+        CartSummaryVO summary = new CartSummaryVO();
+        summary.setGoodsCount((int) count);
+        summary.setTotalPrice(price / 100.0);
+        summary.setPostFee(freight / 100.0);
+        summary.setTotalPayPrice((price + freight) / 100.0);
+        return summary;
+    }
+}
@@ -0,0 +1,79 @@
+package com.soft2242.shop.common.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.soft2242.shop.vo.CategoryChildrenGoodsVO;
+import com.soft2242.shop.vo.CategoryVO;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+
+/**
+ * 分类树快照，创建后不再修改，刷新时整体替换
+ * <p>
+ * 分类 VO 是可变对象，创建快照和读取分类树时都做深拷贝，调用方修改返回结果不会影响快照内容和版本号
+ */
+public class CategorySnapshot {
+    /**
+     * 快照版本号，分类树内容的摘要，用作 ETag
+     */
+    @Getter
+    private final String version;
+
+    /**
+     * 分类树，只在快照内部使用
+     */
+    private final List<CategoryVO> categories;
+
+    public CategorySnapshot(List<CategoryVO> categories) {
+        this.categories = copy(categories);
+        this.version = DigestUtils.md5DigestAsHex(JSON.toJSONBytes(this.categories));
+    }
+
+    /**
+     * 获取分类树的副本
+     *
+     * @return 分类树
+     */
+    public List<CategoryVO> getCategories() {
+        return copy(categories);
+    }
+
+    private static List<CategoryVO> copy(List<CategoryVO> categories) {
+        return categories.stream().map(CategorySnapshot::copy).toList();
+    }
+
+    private static CategoryVO copy(CategoryVO source) {
+        CategoryVO target = new CategoryVO();
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setIcon(source.getIcon());
+        target.setChildren(source.getChildren() == null ? null
+            : source.getChildren().stream().map(CategorySnapshot::copy).toList());
+        return target;
+    }
+
+    private static CategoryChildrenGoodsVO copy(CategoryChildrenGoodsVO source) {
+        CategoryChildrenGoodsVO target = new CategoryChildrenGoodsVO();
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setIcon(source.getIcon());
+        target.setParentId(source.getParentId());
+        target.setParentName(source.getParentName());
+        target.setGoods(source.getGoods() == null ? null
+            : source.getGoods().stream().map(CategorySnapshot::copy).toList());
+        return target;
+    }
+
+    private static RecommendGoodsVO copy(RecommendGoodsVO source) {
+        RecommendGoodsVO target = new RecommendGoodsVO();
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setDescription(source.getDescription());
+        target.setPrice(source.getPrice());
+        target.setCover(source.getCover());
+        target.setSalesCount(source.getSalesCount());
+        return target;
+    }
+}
@@ -0,0 +1,144 @@
+package com.soft2242.shop.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.soft2242.shop.convert.GoodsConvert;
+import com.soft2242.shop.entity.Category;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.enums.CategoryRecommendEnum;
+import com.soft2242.shop.mapper.CategoryMapper;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.vo.CategoryChildrenGoodsVO;
+import com.soft2242.shop.vo.CategoryVO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.CATEGORY_INVALIDATE_CHANNEL;
+
+/**
+ * 分类页分类树缓存
+ * <p>
+ * 父分类、子分类、子分类下的预览商品各用一条查询构建出不可变快照，请求直接读取快照不访问数据库；
+ * 定时或收到分类变更广播时重建，构建完成后整体替换。分类由后台维护，后台修改分类后向
+ * {@code category:invalidate} 频道发布消息即可让所有节点立即重建，未发布时等待下一次定时重建
+ */
+@Slf4j
+@Component
+public class CategoryTreeCache implements MessageListener {
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 每个子分类预览的商品数量
+     */
+    @Value("${shop.category.goods-preview-size:20}")
+    private int previewSize;
+
+    private volatile CategorySnapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CATEGORY_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取当前分类树快照，首次访问时构建
+     *
+     * @return 分类树快照
+     */
+    public CategorySnapshot get() {
+        CategorySnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = build();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        refresh();
+    }
+
+    /**
+     * 定时重建分类树，失败时保留旧快照
+     */
+    @Scheduled(fixedDelayString = "${shop.category.refresh-interval:300000}")
+    public void refresh() {
+        try {
+            snapshot = build();
+        } catch (Exception e) {
+            log.error("分类树刷新失败", e);
+        }
+    }
+
+    private CategorySnapshot build() {
+        // 1、查询配置在分类tab页上的父级分类
+        LambdaQueryWrapper<Category> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Category::getIsRecommend, CategoryRecommendEnum.ALL_RECOMMEND.getValue()).or()
+            .eq(Category::getIsRecommend, CategoryRecommendEnum.CATEGORY_HOME_RECOMMEND.getValue());
+        List<Category> categories = categoryMapper.selectList(wrapper);
+        List<CategoryVO> list = new ArrayList<>();
+        if (categories.isEmpty()) {
+            return new CategorySnapshot(list);
+        }
+        // 2、一次查询出所有父级分类的子分类
+        List<Integer> parentIds = categories.stream().map(Category::getId).collect(Collectors.toList());
+        List<Category> children =
+            categoryMapper.selectList(new LambdaQueryWrapper<Category>().in(Category::getParentId, parentIds));
+        Map<Integer, List<Category>> childrenMap =
+            children.stream().collect(Collectors.groupingBy(Category::getParentId));
+        // 3、一次查询出每个子分类下销量最高的若干商品
+        Map<Integer, List<Goods>> goodsMap = new HashMap<>();
+        if (!children.isEmpty()) {
+            List<Integer> childIds = children.stream().map(Category::getId).collect(Collectors.toList());
+            goodsMap = goodsMapper.selectTopByCategoryIds(childIds, previewSize).stream()
+                .collect(Collectors.groupingBy(Goods::getCategoryId));
+        }
+        for (Category category : categories) {
+            CategoryVO categoryVO = new CategoryVO();
+            categoryVO.setId(category.getId());
+            categoryVO.setName(category.getName());
+            categoryVO.setIcon(category.getIcon());
+            List<CategoryChildrenGoodsVO> categoryChildrenGoodsList = new ArrayList<>();
+            for (Category item : childrenMap.getOrDefault(category.getId(), List.of())) {
+                CategoryChildrenGoodsVO childrenGoodsVO = new CategoryChildrenGoodsVO();
+                childrenGoodsVO.setId(item.getId());
+                childrenGoodsVO.setName(item.getName());
+                childrenGoodsVO.setIcon(item.getIcon());
+                childrenGoodsVO.setParentId(category.getId());
+                childrenGoodsVO.setParentName(category.getName());
+                childrenGoodsVO.setGoods(GoodsConvert.INSTANCE
+                    .convertToRecommendGoodsVOList(goodsMap.getOrDefault(item.getId(), List.of())));
+                categoryChildrenGoodsList.add(childrenGoodsVO);
+            }
+            categoryVO.setChildren(categoryChildrenGoodsList);
+            list.add(categoryVO);
+        }
+        return new CategorySnapshot(list);
+    }
+}
@@ -0,0 +1,234 @@
+package com.soft2242.shop.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.GoodsVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.*;
+
+/**
+ * 商品详情二级缓存：本地 Caffeine 为一级，Redis 为二级
+ * <p>
+ * 同一节点上同一商品只有一个线程回源，多个节点之间通过 Redis 锁控制只有一个节点查询数据库；
+ * 商品名称、价格、上下架、规格变更后调用 {@link #evict(Integer)}，通过 goods:invalidate 通知所有节点的商品相关缓存；
+ * 下单、库存回写等只改变库存和销量时调用 {@link #evictStockAfterCommit(Collection)}，
+ * 通过单独的 goods:stock 频道只清除各节点的商品详情缓存，不影响推荐、搜索等其他缓存。
+ * 命中率和回源耗时注册为 Micrometer 指标：本地缓存为 cache.* (cache=goodsDetail)，
+ * Redis 为 goods.detail.redis.requests，回源数据库为 goods.detail.load
+ */
+@Slf4j
+@Component
+public class GoodsDetailCache implements MessageListener {
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本地缓存最大商品数
+     */
+    @Value("${shop.cache.goods-detail.local-size:10000}")
+    private long localSize;
+
+    /**
+     * 本地缓存过期时间(秒)
+     */
+    @Value("${shop.cache.goods-detail.local-expire:60}")
+    private long localExpire;
+
+    /**
+     * Redis 缓存过期时间(分钟)
+     */
+    @Value("${shop.cache.goods-detail.redis-expire:10}")
+    private long redisExpire;
+
+    private Cache<Integer, GoodsVO> localCache;
+
+    private Counter redisHits;
+    private Counter redisMisses;
+    private Timer loadTimer;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder().maximumSize(localSize).expireAfterWrite(Duration.ofSeconds(localExpire))
+            .recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "goodsDetail");
+        redisHits = Counter.builder("goods.detail.redis.requests").tag("result", "hit")
+            .description("商品详情 Redis 缓存命中次数").register(meterRegistry);
+        redisMisses = Counter.builder("goods.detail.redis.requests").tag("result", "miss")
+            .description("商品详情 Redis 缓存未命中次数").register(meterRegistry);
+        loadTimer = Timer.builder("goods.detail.load").description("商品详情回源数据库耗时").register(meterRegistry);
+        listenerContainer.addMessageListener(this,
+            List.of(new ChannelTopic(GOODS_INVALIDATE_CHANNEL), new ChannelTopic(GOODS_STOCK_CHANNEL)));
+    }
+
+    /**
+     * 获取商品详情，依次读取本地缓存、Redis，都未命中时调用 loader 查询数据库
+     *
+     * @param id 商品id
+     * @param loader 查询数据库的方法
+     * @return 商品详情
+     */
+    public GoodsVO get(Integer id, Function<Integer, GoodsVO> loader) {
+        return localCache.get(id, key -> loadFromRedis(key, loader));
+    }
+
+    /**
+     * 商品信息变更后清除所有节点上的商品详情缓存，并通知其他商品相关缓存
+     *
+     * @param id 商品id
+     */
+    public void evict(Integer id) {
+        redisService.removeKey(GOODS_DETAIL + id);
+        stringRedisTemplate.convertAndSend(GOODS_INVALIDATE_CHANNEL, String.valueOf(id));
+    }
+
+    /**
+     * 库存、销量变化后清除商品详情缓存：当前事务提交后执行，事务回滚时不处理；不在事务中时立即清除
+     *
+     * @param ids 商品id
+     */
+    public void evictStockAfterCommit(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<String> goodsIds = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictStock(goodsIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictStock(goodsIds);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String id : body.split(",")) {
+            try {
+                localCache.invalidate(Integer.valueOf(id.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无效的商品变更消息：{}", body);
+            }
+        }
+    }
+
+    /**
+     * 缓存命中统计
+     *
+     * @return 统计数据
+     */
+    public Map<String, Object> stats() {
+        CacheStats localStats = localCache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localSize", localCache.estimatedSize());
+        stats.put("localHits", localStats.hitCount());
+        stats.put("localMisses", localStats.missCount());
+        stats.put("localEvictions", localStats.evictionCount());
+        stats.put("redisHits", (long) redisHits.count());
+        stats.put("redisMisses", (long) redisMisses.count());
+        stats.put("dbLoads", loadTimer.count());
+        stats.put("dbAvgLoadMillis", loadTimer.mean(TimeUnit.MILLISECONDS));
+        return stats;
+    }
+
+    @Scheduled(fixedRateString = "${shop.cache.stats-interval:300000}")
+    public void logStats() {
+        log.info("商品详情缓存统计：{}", stats());
+    }
+
+    private GoodsVO loadFromRedis(Integer id, Function<Integer, GoodsVO> loader) {
+        String key = GOODS_DETAIL + id;
+        GoodsVO goodsVO = readRedis(key);
+        if (goodsVO != null) {
+            redisHits.increment();
+            return goodsVO;
+        }
+        redisMisses.increment();
+        // 只允许一个节点回源，其他节点等待其写入 Redis
+        String lockKey = GOODS_DETAIL_LOCK + id;
+        boolean locked =
+            Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", Duration.ofSeconds(5)));
+        if (!locked) {
+            for (int i = 0; i < 10; i++) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                goodsVO = readRedis(key);
+                if (goodsVO != null) {
+                    return goodsVO;
+                }
+            }
+        }
+        try {
+            goodsVO = loadTimer.record(() -> loader.apply(id));
+            redisService.set(key, goodsVO, redisExpire);
+            return goodsVO;
+        } finally {
+            if (locked) {
+                stringRedisTemplate.delete(lockKey);
+            }
+        }
+    }
+
+    /**
+     * 一次删除所有商品的 Redis 缓存，再用一条消息通知各节点清除本地缓存；
+     * 数据已经提交，清除缓存失败只记录日志，由缓存过期兜底
+     */
+    private void evictStock(List<String> goodsIds) {
+        try {
+            stringRedisTemplate.delete(goodsIds.stream().map(id -> GOODS_DETAIL + id).collect(Collectors.toList()));
+            stringRedisTemplate.convertAndSend(GOODS_STOCK_CHANNEL, String.join(",", goodsIds));
+        } catch (Exception e) {
+            log.error("清除商品{}的详情缓存失败", goodsIds, e);
+        }
+    }
+
+    private GoodsVO readRedis(String key) {
+        return redisService.getValue(key, GoodsVO.class);
+    }
+}
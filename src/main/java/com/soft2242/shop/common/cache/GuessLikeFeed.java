@@ -0,0 +1,214 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.convert.GoodsConvert;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.*;
+
+/**
+ * 猜你喜欢推荐流
+ * <p>
+ * 定时按销量和上架时间计算商品排名，把排好序的商品id写入 Redis 列表(先写临时 key 再 RENAME，读取方不会看到半成品)；
+ * 分页时按下标截取id，再批量读取缓存的商品信息，翻页深度和商品总数都不影响单页开销，也不需要 COUNT 查询；
+ * 登录用户有个性化推荐(见 RecommendService)时优先使用个性化列表。
+ * 推荐流只在启动时和定时任务中计算(fixedDelay 的定时任务启动后立即执行一次)，请求中不会触发计算；
+ * 没有可推荐商品时列表 key 不存在，读取方直接返回空页
+ */
+@Slf4j
+@Component
+public class GuessLikeFeed implements MessageListener {
+
+    private static final String REBUILD_LOCK = "goods:guess:lock";
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 推荐流最大商品数
+     */
+    @Value("${shop.goods.guess-like.size:1000}")
+    private int feedSize;
+
+    /**
+     * 时间衰减系数，越大新商品越靠前
+     */
+    @Value("${shop.goods.guess-like.gravity:1.5}")
+    private double gravity;
+
+    /**
+     * 商品信息缓存过期时间(分钟)
+     */
+    @Value("${shop.goods.guess-like.goods-expire:10}")
+    private long goodsExpire;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(GOODS_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 分页获取推荐商品
+     *
+     * @param page 页码
+     * @param pageSize 每页条数
+     * @return 推荐商品
+     */
+    public PageResult<RecommendGoodsVO> getPage(int page, int pageSize) {
+        checkPage(page, pageSize);
+        Long total = stringRedisTemplate.opsForList().size(GOODS_GUESS_LIKE);
+        if (total == null || total == 0) {
+            return new PageResult<>(0, pageSize, page, 0, new ArrayList<>());
+        }
+        long start = (long) (page - 1) * pageSize;
+        List<String> ids = start >= total ? List.of()
+            : stringRedisTemplate.opsForList().range(GOODS_GUESS_LIKE, start, start + pageSize - 1);
+        long pages = (total + pageSize - 1) / pageSize;
+        return new PageResult<>(total, pageSize, page, pages, getGoods(ids));
+    }
+
+    /**
+     * 分页获取用户的个性化推荐商品，用户没有个性化推荐时返回全站推荐流
+     *
+     * @param userId 用户id，未登录时为 null
+     * @param page 页码
+     * @param pageSize 每页条数
+     * @return 推荐商品
+     */
+    public PageResult<RecommendGoodsVO> getPage(Integer userId, int page, int pageSize) {
+        if (userId == null) {
+            return getPage(page, pageSize);
+        }
+        checkPage(page, pageSize);
+        String key = GOODS_GUESS_LIKE_USER + userId;
+        Long total = stringRedisTemplate.opsForList().size(key);
+        if (total == null || total == 0) {
+            return getPage(page, pageSize);
+        }
+        long start = (long) (page - 1) * pageSize;
+        List<String> ids = start >= total ? List.of()
+            : stringRedisTemplate.opsForList().range(key, start, start + pageSize - 1);
+        long pages = (total + pageSize - 1) / pageSize;
+        return new PageResult<>(total, pageSize, page, pages, getGoods(ids));
+    }
+
+    /**
+     * 分页参数由接口校验，这里再检查一次，避免除以 0 或起始位置为负数
+     */
+    private static void checkPage(int page, int pageSize) {
+        if (page < 1 || pageSize < 1) {
+            throw new ServerException("分页参数错误");
+        }
+    }
+
+    /**
+     * 按id顺序批量获取商品推荐信息，缓存未命中的商品一次查询数据库并回填，已下架的商品跳过
+     *
+     * @param ids 商品id列表
+     * @return 推荐商品
+     */
+    public List<RecommendGoodsVO> getGoods(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<RecommendGoodsVO> cached = redisService.multiGet(
+            ids.stream().map(id -> GOODS_RECOMMEND + id).collect(Collectors.toList()), RecommendGoodsVO.class);
+        List<String> missIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (cached.get(i) == null) {
+                missIds.add(ids.get(i));
+            }
+        }
+        Map<String, RecommendGoodsVO> loaded = new HashMap<>();
+        if (!missIds.isEmpty()) {
+            Map<String, Object> values = new HashMap<>();
+            for (Goods goods : goodsMapper.selectMapByIds(missIds).values()) {
+                RecommendGoodsVO goodsVO = GoodsConvert.INSTANCE.convertToRecommendGoodsVO(goods);
+                loaded.put(goods.getId(), goodsVO);
+                values.put(GOODS_RECOMMEND + goods.getId(), goodsVO);
+            }
+            redisService.multiSet(values, goodsExpire);
+        }
+        List<RecommendGoodsVO> list = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            RecommendGoodsVO goodsVO = cached.get(i) != null ? cached.get(i) : loaded.get(ids.get(i));
+            if (goodsVO != null) {
+                list.add(goodsVO);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 定时重新计算推荐流
+     */
+    @Scheduled(fixedDelayString = "${shop.goods.guess-like.refresh-interval:600000}")
+    public void rebuild() {
+        // 多节点部署时同一时刻只允许一个节点计算
+        String owner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK, owner, Duration.ofSeconds(60));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            List<String> ids = goodsMapper.selectGuessLikeIds(gravity, feedSize);
+            if (ids.isEmpty()) {
+                stringRedisTemplate.delete(GOODS_GUESS_LIKE);
+                return;
+            }
+            String tempKey = GOODS_GUESS_LIKE + ":" + UUID.randomUUID();
+            stringRedisTemplate.opsForList().rightPushAll(tempKey, ids);
+            stringRedisTemplate.rename(tempKey, GOODS_GUESS_LIKE);
+            log.info("猜你喜欢推荐流已更新，共{}个商品", ids.size());
+        } finally {
+            // 计算超过锁的过期时间时锁可能已被其他节点取得，只释放自己持有的锁
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, List.of(REBUILD_LOCK), owner);
+        }
+    }
+
+    /**
+     * 商品变更时删除该商品缓存的推荐信息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        redisService.removeKey(GOODS_RECOMMEND + new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,77 @@
+package com.soft2242.shop.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.soft2242.shop.convert.GoodsConvert;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 同类商品推荐缓存
+ * <p>
+ * 每个分类只保存销量最高的前 N+1 个商品(多保留一个用于排除当前商品)，定时刷新，
+ * 商品详情页的推荐列表开销与分类下的商品总数无关
+ */
+@Slf4j
+@Component
+public class SimilarGoodsCache {
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    /**
+     * 推荐商品数量
+     */
+    @Value("${shop.goods.similar-size:10}")
+    private int similarSize;
+
+    private final Map<Integer, List<RecommendGoodsVO>> categoryTopGoods = new ConcurrentHashMap<>();
+
+    /**
+     * 获取同类商品推荐，按销量倒序，不包含当前商品
+     *
+     * @param categoryId 分类id
+     * @param excludeId 当前商品id
+     * @return 推荐商品列表
+     */
+    public List<RecommendGoodsVO> getSimilarGoods(Integer categoryId, String excludeId) {
+        if (categoryId == null) {
+            return List.of();
+        }
+        return categoryTopGoods.computeIfAbsent(categoryId, this::loadTopGoods).stream()
+            .filter(item -> !item.getId().equals(excludeId)).limit(similarSize).collect(Collectors.toList());
+    }
+
+    /**
+     * 定时刷新已缓存分类的推荐列表
+     */
+    @Scheduled(fixedDelayString = "${shop.goods.similar-refresh-interval:600000}")
+    public void refresh() {
+        for (Integer categoryId : categoryTopGoods.keySet()) {
+            try {
+                categoryTopGoods.put(categoryId, loadTopGoods(categoryId));
+            } catch (Exception e) {
+                log.error("刷新分类{}推荐商品失败", categoryId, e);
+            }
+        }
+    }
+
+    private List<RecommendGoodsVO> loadTopGoods(Integer categoryId) {
+        // 只取前 N+1 条，不做 count 查询
+        Page<Goods> page = new Page<>(1, similarSize + 1, false);
+        List<Goods> goodsList = goodsMapper.selectPage(page, new LambdaQueryWrapper<Goods>()
+            .eq(Goods::getCategoryId, categoryId).orderByDesc(Goods::getSalesCount)).getRecords();
+        return List.copyOf(GoodsConvert.INSTANCE.convertToRecommendGoodsVOList(goodsList));
+    }
+}
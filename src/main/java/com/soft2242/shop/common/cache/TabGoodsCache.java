@@ -0,0 +1,64 @@
+package com.soft2242.shop.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.soft2242.shop.vo.IndexTabRecommendVO;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_INVALIDATE_CHANNEL;
+
+/**
+ * 热门推荐 tab 商品缓存
+ * <p>
+ * 按推荐分类和分页参数缓存整个推荐结果，过期时间较短；商品内容变更(goods:invalidate)时清空。
+ * 库存、销量变化只发布到 goods:stock，不会清空本缓存，推荐结果中的销量最多滞后一个过期时间
+ */
+@Component
+public class TabGoodsCache implements MessageListener {
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 缓存过期时间(秒)
+     */
+    @Value("${shop.goods.tab-cache-expire:30}")
+    private long expire;
+
+    private Cache<String, IndexTabRecommendVO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(Duration.ofSeconds(expire)).build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(GOODS_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取推荐结果，未命中时加载
+     *
+     * @param recommendId 推荐分类id
+     * @param page 页码
+     * @param pageSize 每页条数
+     * @param loader 加载推荐结果
+     * @return 推荐结果
+     */
+    public IndexTabRecommendVO get(Integer recommendId, Integer page, Integer pageSize,
+        Function<String, IndexTabRecommendVO> loader) {
+        return cache.get(recommendId + ":" + page + ":" + pageSize, loader);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        cache.invalidateAll();
+    }
+}
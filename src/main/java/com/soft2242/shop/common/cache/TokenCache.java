@@ -0,0 +1,201 @@
+package com.soft2242.shop.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.TOKEN_REVOKE_CHANNEL;
+
+/**
+ * 已校验 token 的本地缓存
+ * <p>
+ * 以 token 的 SHA-256 摘要为 key 保存用户id和过期时间，命中时登录拦截器不再解析 JWT、不再访问 Redis；
+ * 用户重新登录时通过发布/订阅通知所有节点清除该用户的旧 token，按用户id索引直接定位，不遍历整个缓存。
+ * <p>
+ * 校验未命中时先读取 Redis 再写入本地缓存，读取之后、写入之前收到的失效消息会被写入覆盖；
+ * 因此每个用户有一个失效代数，收到失效消息时递增，校验前读取代数，写入时代数已变化则不缓存。
+ * 代数按用户id分段保存，不随用户数增长，不同用户落在同一段时只会多一次不缓存
+ */
+@Slf4j
+@Component
+public class TokenCache implements MessageListener {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 本地缓存最大 token 数
+     */
+    @Value("${shop.cache.token.local-size:100000}")
+    private long localSize;
+
+    /**
+     * 本地缓存过期时间(秒)
+     */
+    @Value("${shop.cache.token.local-expire:300}")
+    private long localExpire;
+
+    /**
+     * 失效代数的分段数，必须是 2 的幂
+     */
+    private static final int GENERATION_STRIPES = 4096;
+
+    private Cache<String, TokenEntry> localCache;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * 用户id到其已缓存 token 摘要的索引，token 从缓存中移除(过期、淘汰、失效)时同步清理
+     */
+    private final Map<Integer, Set<String>> userTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder().maximumSize(localSize).expireAfterWrite(Duration.ofSeconds(localExpire))
+            .<String, TokenEntry>removalListener((key, entry, cause) -> {
+                // 同一 token 重新写入时索引仍然有效
+                if (key != null && entry != null && cause != RemovalCause.REPLACED) {
+                    unindex(entry.getUserId(), key);
+                }
+            })
+            .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(TOKEN_REVOKE_CHANNEL));
+    }
+
+    /**
+     * 查询已校验过的 token 对应的用户id
+     *
+     * @param token token
+     * @return 用户id，未缓存或已过期时返回 null
+     */
+    public Integer getUserId(String token) {
+        String key = hash(token);
+        TokenEntry entry = localCache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getExpireAt() <= System.currentTimeMillis()) {
+            localCache.invalidate(key);
+            return null;
+        }
+        return entry.getUserId();
+    }
+
+    /**
+     * 用户当前的失效代数，校验 token 之前读取，写入缓存时传给 {@link #put}
+     *
+     * @param userId 用户id
+     * @return 失效代数
+     */
+    public long generation(Integer userId) {
+        return generations.get(stripe(userId));
+    }
+
+    /**
+     * 缓存校验通过的 token，校验期间收到该用户的失效消息时不缓存
+     *
+     * @param token token
+     * @param userId 用户id
+     * @param expireAt token 过期时间戳(毫秒)
+     * @param generation 校验前读取的失效代数
+     * @return 是否已缓存
+     */
+    public boolean put(String token, Integer userId, long expireAt, long generation) {
+        if (generation(userId) != generation) {
+            return false;
+        }
+        String key = hash(token);
+        localCache.put(key, new TokenEntry(userId, expireAt));
+        // 在 compute 中修改集合，与清理索引互斥
+        userTokens.compute(userId, (id, keys) -> {
+            Set<String> result = keys == null ? new HashSet<>() : keys;
+            result.add(key);
+            return result;
+        });
+        // 失效消息先递增代数再清除索引：写入索引之后才递增的，清除时能找到本 token；之前递增的在这里发现
+        if (generation(userId) != generation) {
+            localCache.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 通知所有节点清除该用户已缓存的 token
+     *
+     * @param userId 用户id
+     */
+    public void revoke(Integer userId) {
+        stringRedisTemplate.convertAndSend(TOKEN_REVOKE_CHANNEL, String.valueOf(userId));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        Integer userId;
+        try {
+            userId = Integer.valueOf(body);
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的 token 失效消息：{}", body);
+            return;
+        }
+        generations.incrementAndGet(stripe(userId));
+        Set<String> keys = userTokens.remove(userId);
+        if (keys != null) {
+            localCache.invalidateAll(keys);
+        }
+    }
+
+    private void unindex(Integer userId, String key) {
+        userTokens.computeIfPresent(userId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private int stripe(Integer userId) {
+        return userId & (GENERATION_STRIPES - 1);
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class TokenEntry {
+        private final Integer userId;
+        private final long expireAt;
+    }
+}
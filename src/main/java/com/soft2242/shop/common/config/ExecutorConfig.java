@@ -0,0 +1,39 @@
+package com.soft2242.shop.common.config;
+
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 默认线程池，供 @Async 等使用，参数见 spring.task.execution
+     * <p>
+     * 定义了其他线程池后 Spring Boot 不再创建默认线程池，@Async 会退化为每个任务新建线程，因此在这里显式声明
+     */
+    @Primary
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * 首页聚合接口并发查询各模块数据使用的线程池，队列满时拒绝，由调用方使用该模块上一次的结果
+     */
+    @Bean
+    public ThreadPoolTaskExecutor homeFeedExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(32);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("home-feed-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
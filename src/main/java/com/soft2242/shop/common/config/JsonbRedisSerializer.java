@@ -0,0 +1,43 @@
+package com.soft2242.shop.common.config;
+
+import com.alibaba.fastjson2.JSONB;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.filter.Filter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 基于 fastjson2 JSONB 的 Redis 值序列化器
+ * <p>
+ * 写入时携带类型信息，读取时只允许反序列化本项目包下的类型
+ */
+public class JsonbRedisSerializer implements RedisSerializer<Object> {
+
+    private static final Filter AUTO_TYPE_FILTER = JSONReader.autoTypeFilter("com.soft2242.shop.");
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            return JSONB.toBytes(value, JSONWriter.Feature.WriteClassName, JSONWriter.Feature.FieldBased,
+                JSONWriter.Feature.WriteNameAsSymbol);
+        } catch (Exception e) {
+            throw new SerializationException("Could not serialize: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return JSONB.parseObject(bytes, Object.class, AUTO_TYPE_FILTER, JSONReader.Feature.FieldBased);
+        } catch (Exception e) {
+            throw new SerializationException("Could not deserialize: " + e.getMessage(), e);
+        }
+    }
+}
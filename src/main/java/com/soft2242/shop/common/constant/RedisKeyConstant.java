@@ -0,0 +1,111 @@
+package com.soft2242.shop.common.constant;
+
+/**
+ * Redis 键名前缀
+ */
+public class RedisKeyConstant {
+    /**
+     * 商品库存计数器，键名：stock:goods:{goodsId}
+     */
+    public final static String STOCK_GOODS = "stock:goods:";
+
+    /**
+     * 待回写到数据库的商品库存变化量(hash，field 为商品id)
+     */
+    public final static String STOCK_GOODS_DELTA = "stock:delta:goods";
+
+    /**
+     * 正在回写的变化量，回写失败时下一轮继续处理
+     */
+    public final static String PROCESSING_SUFFIX = ":processing";
+
+    /**
+     * 待支付订单超时取消队列(zset，member 为订单id，score 为超时时间戳)
+     */
+    public final static String ORDER_CANCEL_QUEUE = "order:cancel:queue";
+
+    /**
+     * 商品详情缓存，键名：goods:detail:{goodsId}
+     */
+    public final static String GOODS_DETAIL = "goods:detail:";
+
+    /**
+     * 商品详情缓存重建锁，键名：goods:detail:lock:{goodsId}
+     */
+    public final static String GOODS_DETAIL_LOCK = "goods:detail:lock:";
+
+    /**
+     * 商品名称、价格、上下架、规格变更广播频道，消息内容为商品id
+     */
+    public final static String GOODS_INVALIDATE_CHANNEL = "goods:invalidate";
+
+    /**
+     * 商品库存、销量变更广播频道，只清除商品详情缓存，消息内容为逗号分隔的商品id
+     */
+    public final static String GOODS_STOCK_CHANNEL = "goods:stock";
+
+    /**
+     * 分类变更广播频道，后台修改分类后发布任意消息，各节点重建分类树
+     */
+    public final static String CATEGORY_INVALIDATE_CHANNEL = "category:invalidate";
+
+    /**
+     * token 失效广播频道，消息内容为用户id
+     */
+    public final static String TOKEN_REVOKE_CHANNEL = "token:revoke";
+
+    /**
+     * 用户购物车(hash，field 为购物车id)，键名：cart:items:{userId}
+     */
+    public final static String CART_ITEMS = "cart:items:";
+
+    /**
+     * 待回写到数据库的购物车变更(hash，field 为购物车id，value 为操作类型)，键名：cart:pending:{userId}
+     */
+    public final static String CART_PENDING = "cart:pending:";
+
+    /**
+     * 有待回写变更的用户id集合
+     */
+    public final static String CART_DIRTY_USERS = "cart:dirty:users";
+
+    /**
+     * 用户购物车选中商品汇总(hash，金额单位为分)，键名：cart:summary:{userId}
+     */
+    public final static String CART_SUMMARY = "cart:summary:";
+
+    /**
+     * 购物车汇总的商品价格版本，修改商品价格、运费后递增一次
+     */
+    public final static String CART_SUMMARY_VERSION = "cart:summary:version";
+
+    /**
+     * 用户购物车修订号，修改购物车前后各递增一次，键名：cart:summary:revision:{userId}
+     */
+    public final static String CART_SUMMARY_REVISION = "cart:summary:revision:";
+
+    /**
+     * 订单提交令牌，值为订单id，键名：order:submit:{userId}:{token}
+     */
+    public final static String ORDER_SUBMIT = "order:submit:";
+
+    /**
+     * 订单编号机器id租约，值为实例标识，键名：order:worker:{datacenterId}:{workerId}
+     */
+    public final static String ORDER_WORKER = "order:worker:";
+
+    /**
+     * 猜你喜欢推荐流(list，按排名保存商品id)
+     */
+    public final static String GOODS_GUESS_LIKE = "goods:guess";
+
+    /**
+     * 用户个性化猜你喜欢推荐流(list，按得分保存商品id)，键名：goods:guess:user:{userId}
+     */
+    public final static String GOODS_GUESS_LIKE_USER = "goods:guess:user:";
+
+    /**
+     * 商品推荐信息缓存，键名：goods:recommend:{goodsId}
+     */
+    public final static String GOODS_RECOMMEND = "goods:recommend:";
+}
@@ -1,6 +1,7 @@
 package com.soft2242.shop.common.exception;
 
 import com.soft2242.shop.common.result.Result;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
@@ -36,6 +37,17 @@ public class ServerExceptionHandler {
         return Result.error(fieldError.getDefaultMessage());
     }
 
+    /**
+     * 接口参数校验异常
+     *
+     * @param exception
+     * @return
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public Result<String> constraintViolationException(ConstraintViolationException exception) {
+        return Result.error(exception.getConstraintViolations().iterator().next().getMessage());
+    }
+
     /**
      * 其他异常情况
      *
@@ -0,0 +1,39 @@
+package com.soft2242.shop.common.handler;
+
+import com.soft2242.shop.service.UserShoppingCartService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 一次性合并重复购物车记录，合并完成后才能为购物车表增加唯一索引(见 sql/t_user_shopping_cart_unique.sql)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shop.cart.compact-on-startup", havingValue = "true")
+public class CartCompactionRunner {
+
+    @Autowired
+    private UserShoppingCartService userShoppingCartService;
+
+    /**
+     * 每批合并的分组数，每批一个事务
+     */
+    @Value("${shop.cart.compact-batch-size:500}")
+    private Integer batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void compact() {
+        long total = 0;
+        int merged;
+        do {
+            merged = userShoppingCartService.compactDuplicateCarts(batchSize);
+            total += merged;
+        } while (merged > 0);
+        log.info("重复购物车记录合并完成，共合并{}组", total);
+    }
+}
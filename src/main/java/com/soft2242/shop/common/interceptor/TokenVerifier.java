@@ -0,0 +1,90 @@
+package com.soft2242.shop.common.interceptor;
+
+import com.soft2242.shop.common.cache.TokenCache;
+import com.soft2242.shop.common.constant.APIConstant;
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.utils.JWTUtils;
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.UserTokenVO;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static com.soft2242.shop.common.constant.APIConstant.APP_NAME;
+
+/**
+ * token 校验
+ * <p>
+ * 登录拦截器和不需要登录的接口共用同一套校验：本地缓存命中直接返回，否则校验签名，
+ * 再与 Redis 中当前登录的 token 比较，已被新登录替换的 token 视为过期
+ */
+@Component
+public class TokenVerifier {
+
+    @Resource
+    private RedisService redisService;
+
+    @Resource
+    private TokenCache tokenCache;
+
+    /**
+     * 校验 token 并返回用户id
+     *
+     * @param authorization token
+     * @return 用户id
+     * @throws ServerException token 无效或已过期
+     */
+    public Integer verify(String authorization) {
+        // 已校验过的 token 直接放行
+        Integer cachedUserId = tokenCache.getUserId(authorization);
+        if (cachedUserId != null) {
+            return cachedUserId;
+        }
+
+        // 验证token的真伪，如果 token 是真的，对 token 解析，获取用户id
+        Map map = JWTUtils.getClaims(APIConstant.JWT_SECRET, authorization);
+        if (map == null) {
+            throw new ServerException("access denied");
+        }
+
+        // 判断token是否过期
+        UserTokenVO userTokenVO = new UserTokenVO().fromMap(map);
+
+        // 在读取 Redis 之前记下失效代数，读取之后收到的失效消息不会被下面的缓存写入覆盖
+        long generation = tokenCache.generation(userTokenVO.getUserId());
+
+        // 与登录时写入的 key 保持一致,一次 GET 同时完成存在性判断和取值
+        String originToken = redisService.getValue(APP_NAME + userTokenVO.getUserId(), String.class);
+
+        if (originToken != null && !originToken.equals(authorization)) {
+            throw new ServerException("token expire");
+        }
+        tokenCache.put(authorization, userTokenVO.getUserId(),
+            userTokenVO.getLoginAt() + userTokenVO.getExpires() * 1000, generation);
+        return userTokenVO.getUserId();
+    }
+
+    /**
+     * 不需要登录的接口获取当前用户id，未携带 token 或 token 校验不通过时按未登录处理，返回 null
+     *
+     * @param request 请求
+     * @return 用户id
+     */
+    public Integer getOptionalUserId(HttpServletRequest request) {
+        if (request.getAttribute("userId") != null) {
+            return Integer.parseInt(request.getAttribute("userId").toString());
+        }
+        String authorization = request.getHeader(APIConstant.AUTHORIZATION);
+        if (authorization == null) {
+            return null;
+        }
+        try {
+            return verify(authorization);
+        } catch (RuntimeException e) {
+            // 签名错误、过期或已被新登录替换
+            return null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.soft2242.shop.common.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class CursorPageResult<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    @Schema(description = "分页条数")
+    private int pageSize;
+    @Schema(description = "下一页游标，为空表示没有更多数据")
+    private String nextCursor;
+    @Schema(description = "列表数据")
+    private List<T> list;
+
+    public CursorPageResult(int pageSize, String nextCursor, List<T> list) {
+        this.pageSize = pageSize;
+        this.nextCursor = nextCursor;
+        this.list = list;
+    }
+}
@@ -0,0 +1,526 @@
+package com.soft2242.shop.common.search;
+
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.query.GoodsSearchQuery;
+import com.soft2242.shop.vo.GoodsSearchDocVO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_INVALIDATE_CHANNEL;
+
+/**
+ * 商品搜索索引
+ * <p>
+ * 每个节点在内存中保存一份倒排索引，分为两部分：
+ * 主索引启动时从数据库流式构建，之后定时重建，构建完成后整体替换，查询时不加锁；
+ * 增量部分保存主索引构建之后变更过的商品(包括已下架的商品，作为主索引的删除标记)，由商品变更消息维护，
+ * 数量达到阈值时提前重建主索引；增量商品同样按词建立倒排(词到商品id集合)，查询只访问包含查询词的增量商品。
+ * 查询同时检索两部分，主索引中出现在增量部分的商品被跳过。
+ * <p>
+ * 只订阅 goods:invalidate(名称、价格、分类等内容变更)；下单、库存回写产生的库存和销量变化走 goods:stock 频道，
+ * 不影响搜索结果，也不会进入增量部分
+ */
+@Slf4j
+@Component
+public class GoodsSearchIndex implements MessageListener {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /**
+     * 商品名称的词频权重
+     */
+    private static final int NAME_WEIGHT = 2;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 增量商品数达到该值时重建主索引
+     */
+    @Value("${shop.search.max-delta:10000}")
+    private int maxDelta;
+
+    /**
+     * 主索引定时重建间隔(毫秒)
+     */
+    @Value("${shop.search.rebuild-interval:3600000}")
+    private long rebuildInterval;
+
+    /**
+     * 最多可以翻到的结果数
+     */
+    @Value("${shop.search.max-window:1000}")
+    private int maxWindow;
+
+    private volatile Segment segment;
+
+    private final Map<Integer, DeltaDoc> delta = new ConcurrentHashMap<>();
+
+    /**
+     * 增量部分的倒排：词到包含该词的增量商品id，只在持有 deltaLock 时修改
+     */
+    private final Map<String, Set<Integer>> deltaTerms = new ConcurrentHashMap<>();
+
+    private final Object deltaLock = new Object();
+
+    /**
+     * 增量部分未下架的商品数和总长度，用于计算平均文档长度
+     */
+    private volatile int deltaDocCount;
+
+    private volatile long deltaTotalLength;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile long lastBuildTime;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(GOODS_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 搜索商品，所有查询词都出现的商品才会命中，按 BM25 得分排序
+     *
+     * @param query 搜索条件
+     * @return 当前页的商品id
+     */
+    public PageResult<String> search(GoodsSearchQuery query) {
+        List<String> terms = NGramTokenizer.tokenizeQuery(query.getKeyword());
+        int page = query.getPage();
+        int pageSize = query.getPageSize();
+        // 分页参数由接口校验，这里再检查一次，避免除以 0 或起始位置为负数
+        if (page < 1 || pageSize < 1) {
+            throw new ServerException("分页参数错误");
+        }
+        if (terms.isEmpty()) {
+            return new PageResult<>(0, pageSize, page, 0, new ArrayList<>());
+        }
+        Filter filter = new Filter(query);
+        int window = Math.min((int) Math.min((long) page * pageSize, Integer.MAX_VALUE), maxWindow);
+        PriorityQueue<Hit> top = new PriorityQueue<>(Hit.ORDER);
+        Segment current = segment;
+
+        // 文档总数和文档频率合并两部分统计，主索引中被覆盖的商品不扣除，对得分影响可以忽略
+        int docCount = (current == null ? 0 : current.size) + deltaDocCount;
+        double totalLength = (current == null ? 0 : current.totalLength) + deltaTotalLength;
+        double avgLength = docCount == 0 ? 1 : Math.max(totalLength / docCount, 1);
+        double[] idf = new double[terms.size()];
+        PostingList[] postings = new PostingList[terms.size()];
+        // 增量部分的候选商品取包含查询词最少的那个集合，任一查询词不在增量部分时没有候选
+        Set<Integer> deltaCandidates = null;
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            int docFreq = 0;
+            if (current != null) {
+                postings[i] = current.terms.get(term);
+                docFreq = postings[i] == null ? 0 : postings[i].docFreq();
+            }
+            Set<Integer> deltaIds = deltaTerms.getOrDefault(term, Set.of());
+            docFreq += deltaIds.size();
+            if (i == 0 || deltaIds.size() < deltaCandidates.size()) {
+                deltaCandidates = deltaIds;
+            }
+            idf[i] = Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+        }
+
+        int total = 0;
+        if (current != null) {
+            total += searchSegment(current, postings, idf, avgLength, filter, window, top);
+        }
+        for (Integer goodsId : deltaCandidates) {
+            // 集合与增量商品分开修改，读到的可能是已替换的商品，按当前内容重新判断所有查询词
+            DeltaDoc doc = delta.get(goodsId);
+            if (doc == null || doc.freqs == null || !filter.accept(doc.price, doc.categoryId, doc.parentCategoryId)) {
+                continue;
+            }
+            double score = 0;
+            for (int i = 0; i < terms.size() && score >= 0; i++) {
+                Integer freq = doc.freqs.get(terms.get(i));
+                score = freq == null ? -1 : score + bm25(idf[i], freq, doc.length, avgLength);
+            }
+            if (score >= 0) {
+                total++;
+                offer(top, window, new Hit(doc.goodsId, score));
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Hit.ORDER.reversed());
+        long start = (long) (page - 1) * pageSize;
+        List<String> ids = new ArrayList<>();
+        for (long i = start; i < Math.min(start + pageSize, hits.size()); i++) {
+            ids.add(String.valueOf(hits.get((int) i).goodsId));
+        }
+        long pages = (total + pageSize - 1) / pageSize;
+        return new PageResult<>(total, pageSize, page, pages, ids);
+    }
+
+    /**
+     * 从最短的倒排列表开始求交集，其余列表跳转到候选文档
+     *
+     * @return 命中的文档数
+     */
+    private int searchSegment(Segment current, PostingList[] postings, double[] idf, double avgLength,
+        Filter filter, int window, PriorityQueue<Hit> top) {
+        Integer[] order = new Integer[postings.length];
+        for (int i = 0; i < postings.length; i++) {
+            if (postings[i] == null) {
+                return 0;
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> postings[i].docFreq()));
+        PostingList.Cursor[] cursors = new PostingList.Cursor[postings.length];
+        for (int i = 0; i < order.length; i++) {
+            cursors[i] = postings[order[i]].cursor();
+        }
+        int total = 0;
+        PostingList.Cursor lead = cursors[0];
+        candidates:
+        while (lead.next()) {
+            int doc = lead.doc();
+            for (int i = 1; i < cursors.length; i++) {
+                if (!cursors[i].advance(doc)) {
+                    break candidates;
+                }
+                if (cursors[i].doc() != doc) {
+                    continue candidates;
+                }
+            }
+            int goodsId = current.goodsIds[doc];
+            if (!filter.accept(current.prices[doc], current.categoryIds[doc], current.parentCategoryIds[doc])
+                || delta.containsKey(goodsId)) {
+                continue;
+            }
+            double score = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                score += bm25(idf[order[i]], cursors[i].freq(), current.lengths[doc], avgLength);
+            }
+            total++;
+            offer(top, window, new Hit(goodsId, score));
+        }
+        return total;
+    }
+
+    private static double bm25(double idf, int freq, int length, double avgLength) {
+        return idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * length / avgLength));
+    }
+
+    private static void offer(PriorityQueue<Hit> top, int window, Hit hit) {
+        if (top.size() < window) {
+            top.offer(hit);
+        } else if (window > 0 && Hit.ORDER.compare(top.peek(), hit) < 0) {
+            top.poll();
+            top.offer(hit);
+        }
+    }
+
+    /**
+     * 商品变更时重新读取该商品放入增量部分，已下架的商品记录为删除
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        Integer goodsId;
+        try {
+            goodsId = Integer.valueOf(body.trim());
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的商品变更消息：{}", body);
+            return;
+        }
+        GoodsSearchDocVO doc = goodsMapper.selectSearchDoc(goodsId);
+        synchronized (deltaLock) {
+            DeltaDoc deltaDoc = doc == null ? DeltaDoc.deleted(goodsId, sequence.incrementAndGet())
+                : DeltaDoc.of(doc, sequence.incrementAndGet());
+            unindex(delta.put(goodsId, deltaDoc));
+            index(deltaDoc);
+        }
+    }
+
+    /**
+     * 增量商品加入倒排，调用方持有 deltaLock
+     */
+    private void index(DeltaDoc doc) {
+        if (doc.freqs == null) {
+            return;
+        }
+        for (String term : doc.freqs.keySet()) {
+            deltaTerms.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet()).add(doc.goodsId);
+        }
+        deltaDocCount++;
+        deltaTotalLength += doc.length;
+    }
+
+    /**
+     * 增量商品移出倒排，调用方持有 deltaLock
+     */
+    private void unindex(DeltaDoc doc) {
+        if (doc == null || doc.freqs == null) {
+            return;
+        }
+        for (String term : doc.freqs.keySet()) {
+            deltaTerms.computeIfPresent(term, (k, ids) -> {
+                ids.remove(doc.goodsId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        deltaDocCount--;
+        deltaTotalLength -= doc.length;
+    }
+
+    /**
+     * 主索引未构建、增量过多或到达重建间隔时重建主索引；启动后立即执行第一次构建
+     */
+    @Scheduled(fixedDelayString = "${shop.search.check-interval:10000}")
+    public void maintain() {
+        if (segment == null || delta.size() >= maxDelta
+            || System.currentTimeMillis() - lastBuildTime >= rebuildInterval) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从数据库流式读取商品重建主索引，完成后整体替换，并清除构建开始前的增量
+     */
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long buildSequence = sequence.get();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<GoodsSearchDocVO> cursor = goodsMapper.scanSearchDocs()) {
+                    load(cursor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Segment built = segment;
+            // 构建开始后的变更可能未被读到，保留在增量部分
+            synchronized (deltaLock) {
+                delta.values().removeIf(doc -> {
+                    if (doc.sequence > buildSequence) {
+                        return false;
+                    }
+                    unindex(doc);
+                    return true;
+                });
+            }
+            lastBuildTime = System.currentTimeMillis();
+            log.info("商品搜索索引构建完成，商品{}个，词{}个，倒排列表{}KB，耗时{}ms", built.size, built.terms.size(),
+                built.postingBytes / 1024, lastBuildTime - start);
+        } catch (Exception e) {
+            log.error("商品搜索索引构建失败", e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * 用给定的商品构建主索引并整体替换，不处理增量部分
+     *
+     * @param docs 商品，按读取顺序编号
+     */
+    void load(Iterable<GoodsSearchDocVO> docs) {
+        SegmentBuilder builder = new SegmentBuilder();
+        docs.forEach(builder::add);
+        segment = builder.build();
+    }
+
+    /**
+     * 统计商品文本中每个词的词频，商品名称按权重重复计数
+     *
+     * @return 文档长度
+     */
+    private static int countTerms(GoodsSearchDocVO doc, Map<String, Integer> freqs) {
+        int[] length = new int[1];
+        NGramTokenizer.tokenize(doc.getName(), term -> {
+            freqs.merge(term, NAME_WEIGHT, Integer::sum);
+            length[0] += NAME_WEIGHT;
+        });
+        for (String text : new String[]{doc.getDescription(), doc.getCategoryName(), doc.getParentCategoryName(),
+            doc.getDetailText()}) {
+            NGramTokenizer.tokenize(text, term -> {
+                freqs.merge(term, 1, Integer::sum);
+                length[0]++;
+            });
+        }
+        return length[0];
+    }
+
+    private static int toCent(Double price) {
+        return price == null ? 0 : (int) Math.round(price * 100);
+    }
+
+    private static int orZero(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 价格和分类过滤条件
+     */
+    private static final class Filter {
+        private final int minPrice;
+        private final int maxPrice;
+        private final int categoryId;
+
+        private Filter(GoodsSearchQuery query) {
+            minPrice = query.getMinPrice() == null ? Integer.MIN_VALUE : toCent(query.getMinPrice());
+            maxPrice = query.getMaxPrice() == null ? Integer.MAX_VALUE : toCent(query.getMaxPrice());
+            categoryId = orZero(query.getCategoryId());
+        }
+
+        private boolean accept(int price, int goodsCategoryId, int parentCategoryId) {
+            return price >= minPrice && price <= maxPrice
+                && (categoryId == 0 || categoryId == goodsCategoryId || categoryId == parentCategoryId);
+        }
+    }
+
+    private record Hit(int goodsId, double score) {
+        /**
+         * 按得分升序，得分相同时按商品id升序；结果逆序输出，同分时新商品在前
+         */
+        private static final Comparator<Hit> ORDER =
+            Comparator.comparingDouble(Hit::score).thenComparingInt(Hit::goodsId);
+    }
+
+    /**
+     * 主索引，内部文档号即数组下标
+     */
+    private static final class Segment {
+        private Map<String, PostingList> terms;
+        private int size;
+        private int[] goodsIds;
+        private int[] prices;
+        private int[] categoryIds;
+        private int[] parentCategoryIds;
+        private int[] lengths;
+        private long totalLength;
+        private long postingBytes;
+    }
+
+    /**
+     * 主索引构建器，文档按读取顺序编号
+     */
+    private static final class SegmentBuilder {
+        private final Map<String, PostingList.Builder> builders = new HashMap<>();
+        private final Map<String, Integer> freqs = new HashMap<>();
+        private int size;
+        private int[] goodsIds = new int[1024];
+        private int[] prices = new int[1024];
+        private int[] categoryIds = new int[1024];
+        private int[] parentCategoryIds = new int[1024];
+        private int[] lengths = new int[1024];
+        private long totalLength;
+
+        private void add(GoodsSearchDocVO doc) {
+            if (size == goodsIds.length) {
+                int capacity = size << 1;
+                goodsIds = Arrays.copyOf(goodsIds, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                parentCategoryIds = Arrays.copyOf(parentCategoryIds, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            freqs.clear();
+            int length = countTerms(doc, freqs);
+            int docId = size++;
+            for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+                builders.computeIfAbsent(entry.getKey(), k -> new PostingList.Builder()).add(docId, entry.getValue());
+            }
+            goodsIds[docId] = Integer.parseInt(doc.getId());
+            prices[docId] = toCent(doc.getPrice());
+            categoryIds[docId] = orZero(doc.getCategoryId());
+            parentCategoryIds[docId] = orZero(doc.getParentCategoryId());
+            lengths[docId] = length;
+            totalLength += length;
+        }
+
+        private Segment build() {
+            Segment segment = new Segment();
+            segment.terms = new HashMap<>(builders.size() * 4 / 3 + 1);
+            for (Map.Entry<String, PostingList.Builder> entry : builders.entrySet()) {
+                PostingList postings = entry.getValue().build();
+                segment.terms.put(entry.getKey(), postings);
+                segment.postingBytes += postings.sizeInBytes();
+            }
+            segment.size = size;
+            segment.goodsIds = Arrays.copyOf(goodsIds, size);
+            segment.prices = Arrays.copyOf(prices, size);
+            segment.categoryIds = Arrays.copyOf(categoryIds, size);
+            segment.parentCategoryIds = Arrays.copyOf(parentCategoryIds, size);
+            segment.lengths = Arrays.copyOf(lengths, size);
+            segment.totalLength = totalLength;
+            return segment;
+        }
+    }
+
+    /**
+     * 增量部分的商品，freqs 为 null 表示已下架
+     */
+    private static final class DeltaDoc {
+        private int goodsId;
+        private long sequence;
+        private Map<String, Integer> freqs;
+        private int length;
+        private int price;
+        private int categoryId;
+        private int parentCategoryId;
+
+        private static DeltaDoc of(GoodsSearchDocVO doc, long sequence) {
+            DeltaDoc deltaDoc = deleted(Integer.parseInt(doc.getId()), sequence);
+            deltaDoc.freqs = new HashMap<>();
+            deltaDoc.length = countTerms(doc, deltaDoc.freqs);
+            deltaDoc.price = toCent(doc.getPrice());
+            deltaDoc.categoryId = orZero(doc.getCategoryId());
+            deltaDoc.parentCategoryId = orZero(doc.getParentCategoryId());
+            return deltaDoc;
+        }
+
+        private static DeltaDoc deleted(int goodsId, long sequence) {
+            DeltaDoc deltaDoc = new DeltaDoc();
+            deltaDoc.goodsId = goodsId;
+            deltaDoc.sequence = sequence;
+            return deltaDoc;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.soft2242.shop.common.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 中文 n-gram 分词
+ * <p>
+ * 连续的汉字切分为单字和相邻两字(bigram)，字母和数字按连续片段作为一个词并转为小写，其余字符作为分隔符。
+ * 查询时汉字片段只取 bigram(单个汉字取单字)，因此查询词在文本中连续出现才能命中，不需要词典
+ */
+public final class NGramTokenizer {
+
+    private NGramTokenizer() {
+    }
+
+    /**
+     * 索引分词，同一个词出现多次会重复输出
+     *
+     * @param text 文本，可以为 null
+     * @param sink 接收分词结果
+     */
+    public static void tokenize(String text, Consumer<String> sink) {
+        split(text, true, sink);
+    }
+
+    /**
+     * 查询分词，结果去重并保持原有顺序
+     *
+     * @param text 查询文本
+     * @return 分词结果
+     */
+    public static List<String> tokenizeQuery(String text) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        split(text, false, terms::add);
+        return new ArrayList<>(terms);
+    }
+
+    private static void split(String text, boolean unigram, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = normalize(text.charAt(i));
+            if (isHan(c)) {
+                int start = i;
+                while (i < length && isHan(normalize(text.charAt(i)))) {
+                    i++;
+                }
+                emitHan(text, start, i, unigram, sink);
+            } else if (Character.isLetterOrDigit(c)) {
+                StringBuilder word = new StringBuilder();
+                while (i < length) {
+                    char next = normalize(text.charAt(i));
+                    if (isHan(next) || !Character.isLetterOrDigit(next)) {
+                        break;
+                    }
+                    word.append(Character.toLowerCase(next));
+                    i++;
+                }
+                sink.accept(word.toString());
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static void emitHan(String text, int start, int end, boolean unigram, Consumer<String> sink) {
+        if (end - start == 1) {
+            sink.accept(String.valueOf(text.charAt(start)));
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (unigram) {
+                sink.accept(String.valueOf(text.charAt(i)));
+            }
+            if (i + 1 < end) {
+                sink.accept(text.substring(i, i + 2));
+            }
+        }
+    }
+
+    /**
+     * 全角字母、数字和符号转为半角
+     */
+    private static char normalize(char c) {
+        if (c >= '！' && c <= '～') {
+            return (char) (c - 0xFEE0);
+        }
+        return c;
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+}
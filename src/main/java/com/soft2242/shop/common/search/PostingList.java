@@ -0,0 +1,134 @@
+package com.soft2242.shop.common.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩的倒排列表
+ * <p>
+ * 按文档号递增保存(文档号差值, 词频)，两者都用变长整数编码，常见的小差值只占 1 个字节；
+ * 只能顺序读取，通过 {@link #cursor()} 遍历或跳转
+ */
+public final class PostingList {
+
+    private final byte[] data;
+
+    private final int docFreq;
+
+    private PostingList(byte[] data, int docFreq) {
+        this.data = data;
+        this.docFreq = docFreq;
+    }
+
+    /**
+     * @return 包含该词的文档数
+     */
+    public int docFreq() {
+        return docFreq;
+    }
+
+    /**
+     * @return 压缩后的字节数
+     */
+    public int sizeInBytes() {
+        return data.length;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 倒排列表游标，初始位于第一个文档之前
+     */
+    public final class Cursor {
+        private int pos;
+        private int remaining = docFreq;
+        private int doc = -1;
+        private int freq;
+
+        /**
+         * 移动到下一个文档
+         *
+         * @return 没有更多文档时返回 false
+         */
+        public boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            doc += readVarInt();
+            freq = readVarInt();
+            return true;
+        }
+
+        /**
+         * 移动到第一个文档号不小于 target 的文档
+         *
+         * @param target 目标文档号
+         * @return 没有这样的文档时返回 false
+         */
+        public boolean advance(int target) {
+            while (doc < target) {
+                if (!next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int doc() {
+            return doc;
+        }
+
+        public int freq() {
+            return freq;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * 倒排列表构建器，文档号必须递增添加
+     */
+    public static final class Builder {
+        private byte[] buffer = new byte[8];
+        private int size;
+        private int lastDoc = -1;
+        private int docFreq;
+
+        public void add(int doc, int freq) {
+            if (doc <= lastDoc) {
+                throw new IllegalArgumentException("文档号必须递增：" + doc);
+            }
+            writeVarInt(doc - lastDoc);
+            writeVarInt(freq);
+            lastDoc = doc;
+            docFreq++;
+        }
+
+        public PostingList build() {
+            return new PostingList(Arrays.copyOf(buffer, size), docFreq);
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+}
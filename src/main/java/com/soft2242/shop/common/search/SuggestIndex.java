@@ -0,0 +1,251 @@
+package com.soft2242.shop.common.search;
+
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.vo.GoodsSuggestVO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 搜索联想词索引
+ * <p>
+ * 商品名称和分类名称按忽略大小写的字典序排序后连续存放在一个 char 数组中，另用 int 数组保存起始位置和权重(销量)，
+ * 不为每个词创建对象。前缀匹配的词在排序后是连续的一段，二分查找得到区间后，用区间最大值线段树按权重依次取出前 K 个。
+ * 索引定时整体重建，构建完成后一次替换引用
+ */
+@Slf4j
+@Component
+public class SuggestIndex {
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 按权重从高到低返回以 prefix 开头的联想词，忽略大小写
+     *
+     * @param prefix 前缀
+     * @param size 返回数量
+     * @return 联想词列表
+     */
+    public List<String> suggest(String prefix, int size) {
+        Snapshot current = snapshot;
+        List<String> result = new ArrayList<>(size);
+        if (current == null || current.count == 0 || prefix == null || prefix.isEmpty()) {
+            return result;
+        }
+        String key = fold(prefix);
+        int from = current.lowerBound(key, false);
+        int to = current.lowerBound(key, true) - 1;
+        if (from > to) {
+            return result;
+        }
+        // 每个候选区间以区间内权重最大的词为代表，取出后把区间从该词处一分为二
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> Integer.compare(
+            current.weights[b[2]], current.weights[a[2]]));
+        ranges.offer(new int[]{from, to, current.maxIndex(from, to)});
+        while (!ranges.isEmpty() && result.size() < size) {
+            int[] range = ranges.poll();
+            int index = range[2];
+            result.add(current.text(index));
+            if (range[0] < index) {
+                ranges.offer(new int[]{range[0], index - 1, current.maxIndex(range[0], index - 1)});
+            }
+            if (index < range[1]) {
+                ranges.offer(new int[]{index + 1, range[1], current.maxIndex(index + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 定时重建联想词索引，启动后立即执行第一次构建
+     */
+    @Scheduled(fixedDelayString = "${shop.search.suggest-refresh-interval:600000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<GoodsSuggestVO> cursor = goodsMapper.scanSuggestions()) {
+                    load(cursor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Snapshot built = snapshot;
+            log.info("搜索联想词索引构建完成，共{}个词，占用{}KB，耗时{}ms", built.count, built.sizeInBytes() / 1024,
+                System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("搜索联想词索引构建失败", e);
+        }
+    }
+
+    /**
+     * 用给定的联想词构建索引并整体替换
+     *
+     * @param suggestions 联想词及权重
+     */
+    void load(Iterable<GoodsSuggestVO> suggestions) {
+        // 同一个词(忽略大小写)只保留一条，权重累加
+        Map<String, Entry> entries = new HashMap<>();
+        for (GoodsSuggestVO suggestion : suggestions) {
+            String text = suggestion.getText() == null ? "" : suggestion.getText().trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            long weight = suggestion.getWeight() == null ? 0 : suggestion.getWeight();
+            entries.computeIfAbsent(fold(text), k -> new Entry(text)).weight += weight;
+        }
+        List<Map.Entry<String, Entry>> sorted = new ArrayList<>(entries.entrySet());
+        sorted.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+        snapshot = new Snapshot(sorted);
+    }
+
+    /**
+     * 逐个字符转为小写，与索引中的比较方式保持一致
+     */
+    private static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static final class Entry {
+        private final String text;
+        private long weight;
+
+        private Entry(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * 不可变的索引快照，第 i 个词为 chars[offsets[i], offsets[i + 1])
+     */
+    private static final class Snapshot {
+        private final int count;
+        private final char[] chars;
+        private final int[] offsets;
+        private final int[] weights;
+        /**
+         * 线段树，tree[leaves + i] 为第 i 个词，内部节点保存子树中权重最大的词的下标
+         */
+        private final int[] tree;
+        private final int leaves;
+
+        private Snapshot(List<Map.Entry<String, Entry>> sorted) {
+            count = sorted.size();
+            offsets = new int[count + 1];
+            weights = new int[count];
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                offsets[i] = length;
+                length += sorted.get(i).getValue().text.length();
+            }
+            offsets[count] = length;
+            chars = new char[length];
+            for (int i = 0; i < count; i++) {
+                Entry entry = sorted.get(i).getValue();
+                entry.text.getChars(0, entry.text.length(), chars, offsets[i]);
+                weights[i] = (int) Math.min(entry.weight, Integer.MAX_VALUE);
+            }
+            leaves = Math.max(Integer.highestOneBit(Math.max(count - 1, 1)) << 1, 1);
+            tree = new int[leaves << 1];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < count; i++) {
+                tree[leaves + i] = i;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = max(tree[node << 1], tree[(node << 1) | 1]);
+            }
+        }
+
+        private String text(int index) {
+            return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+        }
+
+        /**
+         * 返回第一个不小于 prefix 的词的下标；after 为 true 时返回第一个大于所有以 prefix 开头的词的下标
+         */
+        private int lowerBound(String prefix, boolean after) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = comparePrefix(mid, prefix);
+                if (cmp < 0 || (after && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 比较第 index 个词与 prefix，以 prefix 开头时返回 0
+         */
+        private int comparePrefix(int index, String prefix) {
+            int start = offsets[index];
+            int length = offsets[index + 1] - start;
+            int n = Math.min(length, prefix.length());
+            for (int i = 0; i < n; i++) {
+                char c = Character.toLowerCase(chars[start + i]);
+                char p = prefix.charAt(i);
+                if (c != p) {
+                    return c - p;
+                }
+            }
+            return length < prefix.length() ? -1 : 0;
+        }
+
+        /**
+         * 区间 [from, to] 中权重最大的词的下标
+         */
+        private int maxIndex(int from, int to) {
+            int result = -1;
+            for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    result = max(result, tree[l++]);
+                }
+                if ((r & 1) == 1) {
+                    result = max(result, tree[--r]);
+                }
+            }
+            return result;
+        }
+
+        private int max(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return weights[b] > weights[a] ? b : a;
+        }
+
+        private long sizeInBytes() {
+            return (long) chars.length * 2 + (long) (offsets.length + weights.length + tree.length) * 4;
+        }
+    }
+}
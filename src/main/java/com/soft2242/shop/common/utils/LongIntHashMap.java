@@ -0,0 +1,127 @@
+package com.soft2242.shop.common.utils;
+
+/**
+ * long 到 int 的开放寻址哈希表(线性探测)
+ * <p>
+ * 键和值保存在两个基本类型数组中，不产生装箱对象，适合统计商品对共现次数这类大量小计数；
+ * 0 作为空槽标记，不能作为键
+ */
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeAt;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 累加键对应的值，键不存在时以 delta 为初始值
+     *
+     * @param key 键，不能为0
+     * @param delta 增量
+     */
+    public void addTo(long key, int delta) {
+        if (key == 0) {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > resizeAt) {
+            rehash();
+        }
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 值，不存在时返回0
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * 把另一个表的计数累加到当前表
+     *
+     * @param other 另一个表
+     */
+    public void addAll(LongIntHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有键值对
+     *
+     * @param consumer 处理函数
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,86 @@
+package com.soft2242.shop.common.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法 id 生成器
+ * <p>
+ * 64 位 id 由 41 位毫秒时间戳、2 位数据中心id、8 位机器id、12 位序列号组成，整体随时间递增。
+ * 时间戳和序列号保存在同一个 AtomicLong 中，通过 CAS 无锁更新；同一毫秒序列号用完或时钟回拨时
+ * 沿用上一个时间戳继续递增，不会等待也不会重复
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始时间 2023-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1672531200000L;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final int WORKER_BITS = 8;
+
+    private static final int DATACENTER_BITS = 2;
+
+    public static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+
+    public static final long MAX_DATACENTER_ID = (1L << DATACENTER_BITS) - 1;
+
+    /**
+     * 高位为相对起始时间的毫秒数，低 12 位为序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private final long datacenterId;
+
+    private volatile long workerId;
+
+    public SnowflakeIdGenerator(long datacenterId, long workerId) {
+        if (datacenterId < 0 || datacenterId > MAX_DATACENTER_ID) {
+            throw new IllegalArgumentException("datacenterId must be between 0 and " + MAX_DATACENTER_ID);
+        }
+        this.datacenterId = datacenterId;
+        setWorkerId(workerId);
+    }
+
+    /**
+     * 切换机器id(租约丢失后重新申请到新的机器id时调用)
+     *
+     * @param workerId 机器id
+     */
+    public void setWorkerId(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID);
+        }
+        this.workerId = workerId;
+    }
+
+    /**
+     * 生成下一个 id
+     *
+     * @return id
+     */
+    public long nextId() {
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long prevTime = prev >>> SEQUENCE_BITS;
+            if (now > prevTime) {
+                next = now << SEQUENCE_BITS;
+            } else if ((prev & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = prev + 1;
+            } else {
+                // 序列号用完或时钟回拨，借用下一毫秒
+                next = (prevTime + 1) << SEQUENCE_BITS;
+            }
+        } while (!state.compareAndSet(prev, next));
+        return (next >>> SEQUENCE_BITS) << (DATACENTER_BITS + WORKER_BITS + SEQUENCE_BITS)
+            | datacenterId << (WORKER_BITS + SEQUENCE_BITS)
+            | workerId << SEQUENCE_BITS
+            | (next & MAX_SEQUENCE);
+    }
+}
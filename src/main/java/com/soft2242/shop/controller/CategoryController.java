@@ -1,5 +1,6 @@
 package com.soft2242.shop.controller;
 
+import com.soft2242.shop.common.cache.CategorySnapshot;
 import com.soft2242.shop.common.result.PageResult;
 import com.soft2242.shop.common.result.Result;
 import com.soft2242.shop.entity.Category;
@@ -13,6 +14,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -40,9 +42,13 @@ public class CategoryController {
 
     @GetMapping("top")
     @Operation(summary = "tab分类页-商品分类")
-    public Result<List<CategoryVO>> getList() {
-        List<CategoryVO> list = categoryService.getCategoryList();
-        return Result.ok(list);
+    public Result<List<CategoryVO>> getList(WebRequest request) {
+        // 分类树未变化时返回 304，客户端使用本地缓存
+        CategorySnapshot snapshot = categoryService.getCategorySnapshot();
+        if (request.checkNotModified(snapshot.getVersion())) {
+            return null;
+        }
+        return Result.ok(snapshot.getCategories());
     }
 
 
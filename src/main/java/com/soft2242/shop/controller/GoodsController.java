@@ -2,6 +2,8 @@ package com.soft2242.shop.controller;
 
 import com.soft2242.shop.common.result.PageResult;
 import com.soft2242.shop.common.result.Result;
+import com.soft2242.shop.common.interceptor.TokenVerifier;
+import com.soft2242.shop.query.GoodsSearchQuery;
 import com.soft2242.shop.query.Query;
 import com.soft2242.shop.query.RecommendByTabGoodsQuery;
 import com.soft2242.shop.service.GoodsService;
@@ -11,10 +13,14 @@ import com.soft2242.shop.vo.RecommendGoodsVO;
 import io.swagger.v3.oas.annotations.Operation;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
+import org.hibernate.validator.constraints.Range;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * <p>
  * 前端控制器
@@ -27,8 +33,10 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("goods")
 @AllArgsConstructor
+@Validated
 public class GoodsController {
     private final GoodsService goodsService;
+    private final TokenVerifier tokenVerifier;
 
     @Operation(summary = "首页-热门推荐商品列表")
     @PostMapping("preference")
@@ -48,8 +56,26 @@ public class GoodsController {
 
     @Operation(summary = "首页-猜你喜欢")
     @PostMapping("guessLike")
-    public Result<PageResult<RecommendGoodsVO>> getRecommendGoodsByPage(@RequestBody @Validated Query query) {
-        PageResult<RecommendGoodsVO> result = goodsService.getRecommendGoodsByPage(query);
+    public Result<PageResult<RecommendGoodsVO>> getRecommendGoodsByPage(@RequestBody @Validated Query query,
+        HttpServletRequest request) {
+        Integer userId = tokenVerifier.getOptionalUserId(request);
+        PageResult<RecommendGoodsVO> result = goodsService.getRecommendGoodsByPage(query, userId);
+        return Result.ok(result);
+    }
+
+    @Operation(summary = "商品搜索")
+    @PostMapping("search")
+    public Result<PageResult<RecommendGoodsVO>> searchGoods(@RequestBody @Validated GoodsSearchQuery query) {
+        PageResult<RecommendGoodsVO> result = goodsService.searchGoods(query);
+        return Result.ok(result);
+    }
+
+    @Operation(summary = "搜索联想词")
+    @GetMapping("suggest")
+    public Result<List<String>> suggest(@RequestParam String prefix,
+        @RequestParam(defaultValue = "10")
+        @Range(min = 1, max = 20, message = "联想词数量，取值范围 1-20") Integer size) {
+        List<String> result = goodsService.suggest(prefix, size);
         return Result.ok(result);
     }
 }
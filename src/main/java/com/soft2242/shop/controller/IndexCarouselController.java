@@ -2,7 +2,9 @@ package com.soft2242.shop.controller;
 
 import com.soft2242.shop.common.result.Result;
 import com.soft2242.shop.entity.IndexCarousel;
+import com.soft2242.shop.service.HomeFeedService;
 import com.soft2242.shop.service.IndexCarouselService;
+import com.soft2242.shop.vo.HomeFeedVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
@@ -27,6 +29,7 @@ import java.util.List;
 @AllArgsConstructor
 public class IndexCarouselController {
     private final IndexCarouselService indexCarouselService;
+    private final HomeFeedService homeFeedService;
 
     @Operation(summary = "首页/商品分类页-推荐轮播图")
     @GetMapping("banner")
@@ -35,4 +38,11 @@ public class IndexCarouselController {
         return Result.ok(list);
     }
 
+    @Operation(summary = "首页-聚合数据")
+    @GetMapping("feed")
+    public Result<HomeFeedVO> getHomeFeed() {
+        HomeFeedVO homeFeed = homeFeedService.getHomeFeed();
+        return Result.ok(homeFeed);
+    }
+
 }
@@ -2,11 +2,14 @@ package com.soft2242.shop.controller;
 
 import com.alibaba.fastjson2.JSONObject;
 import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.CursorPageResult;
 import com.soft2242.shop.common.result.PageResult;
 import com.soft2242.shop.common.result.Result;
 import com.soft2242.shop.query.CancelGoodsQuery;
+import com.soft2242.shop.query.OrderCursorQuery;
 import com.soft2242.shop.query.OrderPreQuery;
 import com.soft2242.shop.query.OrderQuery;
+import com.soft2242.shop.service.OrderSubmitService;
 import com.soft2242.shop.service.UserOrderService;
 import com.soft2242.shop.vo.OrderDetailVO;
 import com.soft2242.shop.vo.OrderLogisticVO;
@@ -37,13 +40,16 @@ import static com.soft2242.shop.common.utils.ObtainUserIdUtils.getUserId;
 @AllArgsConstructor
 public class UserOrderController {
     private final UserOrderService userOrderService;
+    private final OrderSubmitService orderSubmitService;
 
     @Operation(summary = "提交订单")
     @PostMapping("submit")
     public Result<JSONObject> saveUserOrder(@RequestBody @Validated UserOrderVO userOrderVO,
         HttpServletRequest request) {
         userOrderVO.setUserId(getUserId(request));
-        Integer orderId = userOrderService.addGoodsOrder(userOrderVO);
+        // 同一提交令牌只创建一个订单，重复提交直接返回原订单，不再进入下单事务
+        Integer orderId = orderSubmitService.submit(userOrderVO.getUserId(), userOrderVO.getSubmitToken(),
+            () -> userOrderService.addGoodsOrder(userOrderVO));
         JSONObject json = new JSONObject();
         json.put("id", orderId);
         return Result.ok(json);
@@ -97,6 +103,15 @@ public class UserOrderController {
         return Result.ok(orderList);
     }
 
+    @Operation(summary = "订单列表(游标分页)")
+    @PostMapping("page/cursor")
+    public Result<CursorPageResult<OrderDetailVO>> getOrderListByCursor(@RequestBody @Validated OrderCursorQuery query,
+        HttpServletRequest request) {
+        query.setUserId(getUserId(request));
+        CursorPageResult<OrderDetailVO> orderList = userOrderService.getOrderListByCursor(query);
+        return Result.ok(orderList);
+    }
+
     @Operation(summary = "取消订单")
     @PutMapping("cancel")
     public Result<OrderDetailVO> cancelOrder(@RequestBody @Validated CancelGoodsQuery query) {
@@ -3,9 +3,11 @@ package com.soft2242.shop.controller;
 import com.soft2242.shop.common.exception.ServerException;
 import com.soft2242.shop.common.result.Result;
 import com.soft2242.shop.query.CartQuery;
+import com.soft2242.shop.query.CartSelectedQuery;
 import com.soft2242.shop.query.EditCartQuery;
 import com.soft2242.shop.service.UserShoppingCartService;
 import com.soft2242.shop.vo.CartGoodsVO;
+import com.soft2242.shop.vo.CartSummaryVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
@@ -48,9 +50,17 @@ public class UserShoppingCartController {
         return Result.ok(list);
     }
 
+    @Operation(summary = "购物车选中商品汇总")
+    @GetMapping("summary")
+    public Result<CartSummaryVO> cartSummary(HttpServletRequest request) {
+        Integer userId = getUserId(request);
+        return Result.ok(userShoppingCartService.getCartSummary(userId));
+    }
+
     @Operation(summary = "修改购物车单品")
     @PutMapping("edit")
-    public Result<CartGoodsVO> editShopCart(@RequestBody @Validated EditCartQuery query) {
+    public Result<CartGoodsVO> editShopCart(@RequestBody @Validated EditCartQuery query, HttpServletRequest request) {
+        query.setUserId(getUserId(request));
         CartGoodsVO goodsVO = userShoppingCartService.editCart(query);
         return Result.ok(goodsVO);
     }
@@ -73,4 +83,12 @@ public class UserShoppingCartController {
         userShoppingCartService.editCartSelected(selected, userId);
         return Result.ok();
     }
+
+    @Operation(summary = "购物车部分商品选中/取消选中")
+    @PutMapping("selected/items")
+    public Result editCartSelectedByIds(@RequestBody @Validated CartSelectedQuery query, HttpServletRequest request) {
+        query.setUserId(getUserId(request));
+        userShoppingCartService.editCartSelectedByIds(query);
+        return Result.ok();
+    }
 }
@@ -22,6 +22,8 @@ public interface GoodsConvert {
 
     List<RecommendGoodsVO> convertToRecommendGoodsVOList(List<Goods> goodsList);
 
+    RecommendGoodsVO convertToRecommendGoodsVO(Goods goods);
+
     class MapStruct {
         public static List<String> strToList(String str) {
             if (StringUtils.isNotEmpty(str)) {
@@ -0,0 +1,22 @@
+package com.soft2242.shop.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum StockReserveEnum {
+    NOT_MANAGED(-1, "未开启缓存库存"), INSUFFICIENT(0, "库存不足"), SUCCESS(1, "预扣成功");
+
+    private final Integer value;
+    private final String name;
+
+    public static StockReserveEnum of(Long value) {
+        for (StockReserveEnum item : values()) {
+            if (value != null && item.getValue() == value.intValue()) {
+                return item;
+            }
+        }
+        return NOT_MANAGED;
+    }
+}
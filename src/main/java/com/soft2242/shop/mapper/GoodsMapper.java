@@ -2,10 +2,21 @@ package com.soft2242.shop.mapper;
 
 import com.soft2242.shop.entity.Goods;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.soft2242.shop.vo.GoodsSearchDocVO;
+import com.soft2242.shop.vo.GoodsSuggestVO;
+import com.soft2242.shop.vo.TabGoodsCountVO;
 import com.soft2242.shop.vo.UserOrderGoodsVO;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -24,4 +35,108 @@ public interface GoodsMapper extends BaseMapper<Goods> {
      * @return
      */
     List<UserOrderGoodsVO> getGoodsListByOrderId(@Param("id") Integer id);
+
+    /**
+     * 根据id批量查询商品
+     *
+     * @param ids 商品id集合
+     * @return key 为商品id
+     */
+    default Map<String, Goods> selectMapByIds(Collection<? extends Serializable> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return selectBatchIds(ids).stream().collect(Collectors.toMap(Goods::getId, Function.identity()));
+    }
+
+    /**
+     * 批量扣减库存并增加销量，只扣减库存充足的商品
+     *
+     * @param counts key 为商品id，value 为购买数量
+     * @return 受影响行数，小于商品数表示有商品库存不足
+     */
+    int deductInventoryBatch(@Param("counts") Map<String, Integer> counts);
+
+    /**
+     * 批量回写 Redis 预扣产生的库存变化量，同时累加销量
+     *
+     * @param deltas key 为商品id，value 为扣减数量(负数表示归还)
+     * @return 受影响行数
+     */
+    int applyInventoryDelta(@Param("deltas") Map<String, Integer> deltas);
+
+    /**
+     * 记录一批库存变化量已回写，与回写在同一事务中执行
+     *
+     * @param batchId 批次id
+     * @return 1 表示首次记录，0 表示该批次已经回写过
+     */
+    int insertStockFlushLog(@Param("batchId") String batchId);
+
+    /**
+     * 删除早于指定时间的回写记录
+     *
+     * @param before 时间
+     * @return 删除行数
+     */
+    int deleteStockFlushLogBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * 查询每个分类下销量最高的若干商品
+     *
+     * @param categoryIds 分类id列表
+     * @param limit 每个分类的商品数量
+     * @return 商品列表
+     */
+    List<Goods> selectTopByCategoryIds(@Param("categoryIds") List<Integer> categoryIds, @Param("limit") Integer limit);
+
+    /**
+     * 一次查询多个推荐tab下同一页的商品
+     *
+     * @param tabIds tab id列表
+     * @param offset 每个tab跳过的商品数
+     * @param limit 每个tab的商品数量
+     * @return 商品列表
+     */
+    List<Goods> selectPageByTabIds(@Param("tabIds") List<Integer> tabIds, @Param("offset") Integer offset,
+        @Param("limit") Integer limit);
+
+    /**
+     * 统计每个推荐tab下的商品数量
+     *
+     * @param tabIds tab id列表
+     * @return 每个tab的商品数量，没有商品的tab不返回
+     */
+    List<TabGoodsCountVO> countByTabIds(@Param("tabIds") List<Integer> tabIds);
+
+    /**
+     * 按销量和上架时间计算排名，返回排名靠前的商品id
+     *
+     * @param gravity 时间衰减系数
+     * @param limit 商品数量
+     * @return 商品id列表
+     */
+    List<String> selectGuessLikeIds(@Param("gravity") Double gravity, @Param("limit") Integer limit);
+
+    /**
+     * 流式读取所有上架商品的搜索文档，按商品id排序，需要在事务中遍历
+     *
+     * @return 搜索文档游标
+     */
+    Cursor<GoodsSearchDocVO> scanSearchDocs();
+
+    /**
+     * 查询单个商品的搜索文档
+     *
+     * @param id 商品id
+     * @return 搜索文档，商品不存在或已下架时返回 null
+     */
+    GoodsSearchDocVO selectSearchDoc(@Param("id") Integer id);
+
+    /**
+     * 流式读取搜索联想词：上架商品名称按销量加权，分类名称按分类下商品的总销量加权，需要在事务中遍历
+     *
+     * @return 联想词游标
+     */
+    Cursor<GoodsSuggestVO> scanSuggestions();
 }
@@ -2,6 +2,9 @@ package com.soft2242.shop.mapper;
 
 import com.soft2242.shop.entity.UserOrderGoods;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.soft2242.shop.vo.UserPurchaseVO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 /**
  * <p>
@@ -13,4 +16,12 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface UserOrderGoodsMapper extends BaseMapper<UserOrderGoods> {
 
+    /**
+     * 流式读取用户id在 [fromUserId, toUserId) 范围内的用户买过的商品(去重)，按用户id排序，需在事务中遍历
+     *
+     * @param fromUserId 起始用户id(含)
+     * @param toUserId 结束用户id(不含)
+     * @return 用户购买记录游标
+     */
+    Cursor<UserPurchaseVO> scanUserPurchases(@Param("fromUserId") long fromUserId, @Param("toUserId") long toUserId);
 }
@@ -2,6 +2,10 @@ package com.soft2242.shop.mapper;
 
 import com.soft2242.shop.entity.UserOrder;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +17,49 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface UserOrderMapper extends BaseMapper<UserOrder> {
 
+    /**
+     * 批量取消订单，只更新仍处于指定状态的订单
+     *
+     * @param ids 订单id列表
+     * @param status 取消前的订单状态
+     * @param cancelStatus 取消后的订单状态
+     * @return 受影响行数
+     */
+    int cancelByIds(@Param("ids") List<Integer> ids, @Param("status") Integer status,
+        @Param("cancelStatus") Integer cancelStatus);
+
+    /**
+     * 有订单的最小用户id(含已删除的订单)
+     *
+     * @return 用户id，没有订单时为 null
+     */
+    Integer selectMinUserId();
+
+    /**
+     * 有订单的最大用户id(含已删除的订单)
+     *
+     * @return 用户id，没有订单时为 null
+     */
+    Integer selectMaxUserId();
+
+    /**
+     * 查询指定时间之前创建且仍处于指定状态的订单id，用于超时订单兜底扫描
+     *
+     * @param status 订单状态
+     * @param before 创建时间上限(不含)
+     * @param limit 最多返回的条数
+     * @return 订单id列表
+     */
+    List<Integer> selectIdsCreatedBefore(@Param("status") Integer status, @Param("before") LocalDateTime before,
+        @Param("limit") int limit);
+
+    /**
+     * 支付订单，只更新仍处于指定状态的订单
+     *
+     * @param id 订单id
+     * @param status 支付前的订单状态
+     * @param payStatus 支付后的订单状态
+     * @return 受影响行数，订单不存在或状态已改变时为 0
+     */
+    int payById(@Param("id") Integer id, @Param("status") Integer status, @Param("payStatus") Integer payStatus);
 }
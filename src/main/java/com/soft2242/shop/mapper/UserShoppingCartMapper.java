@@ -3,8 +3,10 @@ package com.soft2242.shop.mapper;
 import com.soft2242.shop.entity.UserShoppingCart;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.soft2242.shop.vo.CartGoodsVO;
+import com.soft2242.shop.vo.CartSummaryVO;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,4 +26,74 @@ public interface UserShoppingCartMapper extends BaseMapper<UserShoppingCart> {
      * @return
      */
     List<CartGoodsVO> getCartGoodsInfo(@Param("id") Integer id);
+
+    /**
+     * 批量更新购物车数量和选中状态
+     *
+     * @param userId 用户id
+     * @param list 购物车列表
+     * @return 受影响行数
+     */
+    int updateCountAndSelectedBatch(@Param("userId") Integer userId, @Param("list") List<UserShoppingCart> list);
+
+    /**
+     * 修改用户全部购物车商品的选中状态
+     *
+     * @param userId 用户id
+     * @param selected 是否选中
+     * @return 受影响行数
+     */
+    int updateSelectedByUserId(@Param("userId") Integer userId, @Param("selected") Boolean selected);
+
+    /**
+     * 修改用户部分购物车商品的选中状态
+     *
+     * @param userId 用户id
+     * @param ids 购物车id列表
+     * @param selected 是否选中
+     * @return 受影响行数
+     */
+    int updateSelectedByIds(@Param("userId") Integer userId, @Param("ids") Collection<Integer> ids,
+        @Param("selected") Boolean selected);
+
+    /**
+     * 逻辑删除用户的购物车商品，不属于该用户的id不受影响
+     *
+     * @param userId 用户id
+     * @param ids 购物车id列表
+     * @return 受影响行数
+     */
+    int deleteByUserIdAndIds(@Param("userId") Integer userId, @Param("ids") Collection<Integer> ids);
+
+    /**
+     * 汇总用户购物车中选中的商品件数、金额和邮费
+     *
+     * @param userId 用户id
+     * @return 汇总信息
+     */
+    CartSummaryVO getCartSummary(@Param("userId") Integer userId);
+
+    /**
+     * 加入购物车，同一用户的同一商品和属性已存在时累加数量，已删除时恢复；主键回填为实际记录的id
+     *
+     * @param cart 购物车信息
+     * @return 1-新增，2-与已有记录合并
+     */
+    int upsertCart(UserShoppingCart cart);
+
+    /**
+     * 查询重复的购物车记录分组，每组返回保留记录的id、未删除记录的数量合计和选中状态
+     *
+     * @param limit 最大分组数
+     * @return 保留的购物车记录
+     */
+    List<UserShoppingCart> selectDuplicateGroups(@Param("limit") Integer limit);
+
+    /**
+     * 物理删除与保留记录重复的其他记录(包括已逻辑删除的)
+     *
+     * @param id 保留记录id
+     * @return 删除行数
+     */
+    int deleteDuplicates(@Param("id") Integer id);
 }
@@ -0,0 +1,22 @@
+package com.soft2242.shop.query;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CartSelectedQuery {
+    @Schema(description = "购物车id列表")
+    @NotEmpty(message = "请选择需要修改的购物车商品")
+    private List<Integer> ids;
+    @Schema(description = "是否选中")
+    @NotNull(message = "选中状态不能为空")
+    private Boolean selected;
+    @Schema(description = "用户id")
+    @JsonIgnore
+    private Integer userId;
+}
@@ -1,5 +1,6 @@
 package com.soft2242.shop.query;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -13,4 +14,7 @@ public class EditCartQuery {
     private Boolean selected;
     @Schema(description = "选购商品数量")
     private Integer count;
+    @Schema(description = "用户id")
+    @JsonIgnore
+    private Integer userId;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.soft2242.shop.query;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class GoodsSearchQuery extends Query {
+    @Schema(description = "搜索关键词")
+    @NotBlank(message = "搜索关键词不能为空")
+    @Size(max = 50, message = "搜索关键词不能超过50个字符")
+    private String keyword;
+    @Schema(description = "最低价格")
+    @PositiveOrZero(message = "最低价格不能小于0")
+    private Double minPrice;
+    @Schema(description = "最高价格")
+    @PositiveOrZero(message = "最高价格不能小于0")
+    private Double maxPrice;
+    @Schema(description = "分类id，一级分类包含其下所有子分类")
+    private Integer categoryId;
+}
@@ -0,0 +1,20 @@
+package com.soft2242.shop.query;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.hibernate.validator.constraints.Range;
+
+@Data
+public class OrderCursorQuery {
+    @Schema(description = "分页游标，首次查询不传，之后传上一页返回的 nextCursor")
+    private String cursor;
+    @Schema(description = "每页条数")
+    @NotNull(message = "每页条数不能为空")
+    @Range(min = 1, max = 100, message = "每页条数，取值范围 1-100")
+    private Integer pageSize;
+    @Schema(description = "订单状态，1为待付款、2为待发货、3为待收货、4为待评价、5为已完成、6为已取消，未传该参数或0为全部")
+    private Integer orderType;
+    @Schema(description = "用户id")
+    private Integer userId;
+}
@@ -1,5 +1,6 @@
 package com.soft2242.shop.service;
 
+import com.soft2242.shop.common.cache.CategorySnapshot;
 import com.soft2242.shop.entity.Category;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.soft2242.shop.vo.CategoryVO;
@@ -29,4 +30,11 @@ public interface CategoryService extends IService<Category> {
      * @return
      */
     List<CategoryVO> getCategoryList();
+
+    /**
+     * tab分类页-商品分类快照(包含版本号)
+     *
+     * @return
+     */
+    CategorySnapshot getCategorySnapshot();
 }
@@ -3,12 +3,15 @@ package com.soft2242.shop.service;
 import com.soft2242.shop.common.result.PageResult;
 import com.soft2242.shop.entity.Goods;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.soft2242.shop.query.GoodsSearchQuery;
 import com.soft2242.shop.query.Query;
 import com.soft2242.shop.query.RecommendByTabGoodsQuery;
 import com.soft2242.shop.vo.GoodsVO;
 import com.soft2242.shop.vo.IndexTabRecommendVO;
 import com.soft2242.shop.vo.RecommendGoodsVO;
 
+import java.util.List;
+
 /**
  * <p>
  * 服务类
@@ -35,10 +38,45 @@ public interface GoodsService extends IService<Goods> {
      */
     PageResult<RecommendGoodsVO> getRecommendGoodsByPage(Query query);
 
+    /**
+     * 首页推荐-猜你喜欢（分页），登录用户优先返回个性化推荐
+     *
+     * @param query
+     * @param userId 用户id，未登录时为 null
+     * @return
+     */
+    PageResult<RecommendGoodsVO> getRecommendGoodsByPage(Query query, Integer userId);
+
+    /**
+     * 商品搜索（分页）
+     *
+     * @param query
+     * @return
+     */
+    PageResult<RecommendGoodsVO> searchGoods(GoodsSearchQuery query);
+
+    /**
+     * 搜索联想词
+     *
+     * @param prefix 输入的前缀
+     * @param size 返回数量，取值范围由接口校验
+     * @return
+     */
+    List<String> suggest(String prefix, Integer size);
+
     /**
      * 根据id 获取商品详情
      * @param id
      * @return
      */
     GoodsVO getGoodsDetail(Integer id);
+
+    /**
+     * 修改商品价格和运费，清除商品缓存并使所有购物车汇总重新计算
+     *
+     * @param id 商品id
+     * @param price 商品价格
+     * @param freight 运费
+     */
+    void updatePrice(Integer id, Double price, Double freight);
 }
@@ -0,0 +1,18 @@
+package com.soft2242.shop.service;
+
+import com.soft2242.shop.vo.HomeFeedVO;
+
+/**
+ * <p>
+ * 首页聚合服务类
+ * </p>
+ */
+public interface HomeFeedService {
+
+    /**
+     * 首页-聚合数据(轮播图、分类、热门推荐、猜你喜欢第一页)
+     *
+     * @return
+     */
+    HomeFeedVO getHomeFeed();
+}
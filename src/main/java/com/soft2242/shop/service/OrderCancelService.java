@@ -0,0 +1,35 @@
+package com.soft2242.shop.service;
+
+/**
+ * <p>
+ * 待支付订单超时取消服务
+ * </p>
+ * 超时队列保存在 Redis 中，应用重启或多节点部署时都不会丢失或重复取消；
+ * 未能登记到队列的订单由数据库扫描兜底取消
+ */
+public interface OrderCancelService {
+
+    /**
+     * 登记订单超时取消，当前事务提交后才加入队列
+     *
+     * @param orderId 订单id
+     */
+    void schedule(Integer orderId);
+
+    /**
+     * 移除订单的超时取消(订单已支付或已手动取消)
+     *
+     * @param orderId 订单id
+     */
+    void unschedule(Integer orderId);
+
+    /**
+     * 批量取消已超时且仍未支付的订单
+     */
+    void cancelExpiredOrders();
+
+    /**
+     * 扫描数据库，取消创建时间超过支付超时时间且仍未支付的订单
+     */
+    void sweepExpiredOrders();
+}
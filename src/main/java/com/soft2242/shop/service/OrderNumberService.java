@@ -0,0 +1,22 @@
+package com.soft2242.shop.service;
+
+/**
+ * <p>
+ * 订单编号服务
+ * </p>
+ * 订单编号为按时间递增的雪花算法 id，机器id从 Redis 租用，多节点部署时不会重复
+ */
+public interface OrderNumberService {
+
+    /**
+     * 生成订单编号
+     *
+     * @return 订单编号
+     */
+    String nextOrderNumber();
+
+    /**
+     * 续租机器id，租约已丢失时重新申请
+     */
+    void renewLease();
+}
@@ -0,0 +1,29 @@
+package com.soft2242.shop.service;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * 订单提交幂等服务
+ * </p>
+ * 同一个提交令牌只会创建一个订单，重复提交直接返回第一次创建的订单id
+ */
+public interface OrderSubmitService {
+
+    /**
+     * 生成提交令牌，随填写订单页下发给客户端
+     *
+     * @return 提交令牌
+     */
+    String issueToken();
+
+    /**
+     * 按提交令牌幂等地提交订单，令牌为空时直接提交
+     *
+     * @param userId 用户id
+     * @param token 提交令牌
+     * @param submitter 实际创建订单的操作，返回订单id；令牌不为空时在本方法开启的事务中执行
+     * @return 订单id
+     */
+    Integer submit(Integer userId, String token, Supplier<Integer> submitter);
+}
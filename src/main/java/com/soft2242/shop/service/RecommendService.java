@@ -0,0 +1,15 @@
+package com.soft2242.shop.service;
+
+/**
+ * <p>
+ * 个性化推荐服务
+ * </p>
+ * 根据用户的历史订单计算商品间的共同购买相似度，为每个用户生成个性化的猜你喜欢列表
+ */
+public interface RecommendService {
+
+    /**
+     * 重新计算所有用户的个性化推荐并写入 Redis
+     */
+    void rebuild();
+}
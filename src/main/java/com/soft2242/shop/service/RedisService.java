@@ -1,5 +1,12 @@
 package com.soft2242.shop.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
 /**
  *
  * @description: Redis服务接口
@@ -25,6 +32,26 @@ public interface RedisService {
      */
     boolean set(final String key, Object value, Long expireTime);
 
+    /**
+     * 添加 Redis术语中 string 类型的数据,值和超时通过一条 SET EX 命令写入
+     *
+     * @param key key
+     * @param value value
+     * @param expireTime 过期时间
+     * @param unit 时间单位
+     * @return boolean
+     */
+    boolean set(final String key, Object value, long expireTime, TimeUnit unit);
+
+    /**
+     * 批量添加 string 类型的数据并设置超时,所有命令在一次管道中发送
+     *
+     * @param values key-value
+     * @param expireTime 过期时间(分钟)
+     * @return boolean
+     */
+    boolean multiSet(final Map<String, ?> values, Long expireTime);
+
     /**
      * 判断 key 是否存在
      *
@@ -43,6 +70,16 @@ public interface RedisService {
      */
     <T> T getValue(final String key, Class<T> type);
 
+    /**
+     * 根据一批 key 获取值(一条 MGET 命令),结果与 keys 顺序一致,不存在或类型不符的位置为 null
+     *
+     * @param keys keys
+     * @param type 类型
+     * @param <T> 泛型
+     * @return 值列表
+     */
+    <T> List<T> multiGet(final Collection<String> keys, Class<T> type);
+
     /**
      * 删除对应的value
      *
@@ -60,10 +97,28 @@ public interface RedisService {
     void remove(final String... keys);
 
     /**
-     * 批量删除key
+     * 批量删除key,通过 SCAN 游标分批查找并 UNLINK,不会长时间阻塞 Redis
      *
      * @param pattern 通配
      */
 
     void removePattern(final String pattern);
+
+    /**
+     * 批量删除key,每删除一批回调一次当前累计删除数量
+     *
+     * @param pattern 通配
+     * @param progress 进度回调,参数为累计删除数量
+     * @return 删除的key数量
+     */
+    long removePattern(final String pattern, LongConsumer progress);
+
+    /**
+     * 异步批量删除key
+     *
+     * @param pattern 通配
+     * @param progress 进度回调,参数为累计删除数量
+     * @return 删除的key数量
+     */
+    CompletableFuture<Long> removePatternAsync(final String pattern, LongConsumer progress);
 }
@@ -0,0 +1,42 @@
+package com.soft2242.shop.service;
+
+import com.soft2242.shop.enums.StockReserveEnum;
+
+/**
+ * <p>
+ * 秒杀/促销商品的 Redis 预扣库存服务
+ * </p>
+ * 只有配置为秒杀商品的商品才由 Redis 管理，其余商品不访问 Redis，仍直接扣减数据库库存
+ */
+public interface StockService {
+
+    /**
+     * 与数据库同步商品的 Redis 库存计数器：先回写已有的变化量，再用数据库库存减去尚未回写的预扣量覆盖计数器，
+     * 补货后调用即可生效
+     *
+     * @param goodsId 商品id
+     */
+    void preloadGoods(String goodsId);
+
+    /**
+     * 预扣商品库存，当前事务回滚时自动归还；不是秒杀商品时直接返回 NOT_MANAGED，不访问 Redis
+     *
+     * @param goodsId 商品id
+     * @param count 数量
+     * @return 预扣结果
+     */
+    StockReserveEnum reserveGoods(String goodsId, Integer count);
+
+    /**
+     * 归还商品库存
+     *
+     * @param goodsId 商品id
+     * @param count 数量
+     */
+    void releaseGoods(String goodsId, Integer count);
+
+    /**
+     * 将 Redis 中累计的库存变化量批量回写到数据库
+     */
+    void reconcile();
+}
@@ -3,9 +3,11 @@ package com.soft2242.shop.service;
 import java.util.List;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.soft2242.shop.common.result.CursorPageResult;
 import com.soft2242.shop.common.result.PageResult;
 import com.soft2242.shop.entity.UserOrder;
 import com.soft2242.shop.query.CancelGoodsQuery;
+import com.soft2242.shop.query.OrderCursorQuery;
 import com.soft2242.shop.query.OrderPreQuery;
 import com.soft2242.shop.query.OrderQuery;
 import com.soft2242.shop.vo.OrderDetailVO;
@@ -71,6 +73,14 @@ public interface UserOrderService extends IService<UserOrder> {
      */
     PageResult<OrderDetailVO> getOrderList(OrderQuery query);
 
+    /**
+     * 订单列表(游标分页)
+     *
+     * @param query
+     * @return
+     */
+    CursorPageResult<OrderDetailVO> getOrderListByCursor(OrderCursorQuery query);
+
     /**
      * 取消订单
      * 
@@ -5,8 +5,10 @@ import java.util.List;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.soft2242.shop.entity.UserShoppingCart;
 import com.soft2242.shop.query.CartQuery;
+import com.soft2242.shop.query.CartSelectedQuery;
 import com.soft2242.shop.query.EditCartQuery;
 import com.soft2242.shop.vo.CartGoodsVO;
+import com.soft2242.shop.vo.CartSummaryVO;
 
 /**
  * <p>
@@ -57,4 +59,35 @@ public interface UserShoppingCartService extends IService<UserShoppingCart> {
      * @param userId
      */
     void editCartSelected(Boolean selected, Integer userId);
+
+    /**
+     * 购物车部分商品选中/取消选中
+     *
+     * @param query
+     */
+    void editCartSelectedByIds(CartSelectedQuery query);
+
+    /**
+     * 购物车选中商品汇总
+     *
+     * @param userId
+     * @return
+     */
+    CartSummaryVO getCartSummary(Integer userId);
+
+    /**
+     * 查询用户购物车中选中的商品
+     *
+     * @param userId
+     * @return
+     */
+    List<UserShoppingCart> getSelectedCartList(Integer userId);
+
+    /**
+     * 合并一批重复的购物车记录
+     *
+     * @param batchSize 每批分组数
+     * @return 本批合并的分组数，为0表示已全部合并
+     */
+    int compactDuplicateCarts(Integer batchSize);
 }
@@ -1,21 +1,17 @@
 package com.soft2242.shop.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.soft2242.shop.convert.GoodsConvert;
+import com.soft2242.shop.common.cache.CategorySnapshot;
+import com.soft2242.shop.common.cache.CategoryTreeCache;
 import com.soft2242.shop.entity.Category;
-import com.soft2242.shop.entity.Goods;
 import com.soft2242.shop.enums.CategoryRecommendEnum;
 import com.soft2242.shop.mapper.CategoryMapper;
-import com.soft2242.shop.mapper.GoodsMapper;
 import com.soft2242.shop.service.CategoryService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.soft2242.shop.vo.CategoryChildrenGoodsVO;
 import com.soft2242.shop.vo.CategoryVO;
-import com.soft2242.shop.vo.RecommendGoodsVO;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,7 +25,7 @@ import java.util.List;
 @Service
 @AllArgsConstructor
 public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> implements CategoryService {
-    private final GoodsMapper goodsMapper;
+    private final CategoryTreeCache categoryTreeCache;
 
     /**
      * 首页-分类列表
@@ -53,42 +49,16 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
      */
     @Override
     public List<CategoryVO> getCategoryList() {
-        List<CategoryVO> list = new ArrayList<>();
-        // 1、查询配置在分类tab页上的 父级分类
-        LambdaQueryWrapper<Category> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Category::getIsRecommend, CategoryRecommendEnum.ALL_RECOMMEND.getValue()).or()
-            .eq(Category::getIsRecommend, CategoryRecommendEnum.CATEGORY_HOME_RECOMMEND.getValue());
-        List<Category> categories = baseMapper.selectList(wrapper);
-        // 2、查询该分类下的自己分类
-        LambdaQueryWrapper<Goods> queryWrapper = new LambdaQueryWrapper<>();
-        for (Category category : categories) {
-            CategoryVO categoryVO = new CategoryVO();
-            categoryVO.setId(category.getId());
-            categoryVO.setName(category.getName());
-            categoryVO.setIcon(category.getIcon());
-            wrapper.clear();
-            wrapper.eq(Category::getParentId, category.getId());
-            List<Category> childCategories = baseMapper.selectList(wrapper);
-            List<CategoryChildrenGoodsVO> categoryChildrenGoodsList = new ArrayList<>();
-            // 3、分类下的商品列表
-            for (Category item : childCategories) {
-                CategoryChildrenGoodsVO childrenGoodsVO = new CategoryChildrenGoodsVO();
-                childrenGoodsVO.setId(item.getId());
-                childrenGoodsVO.setName(item.getName());
-                childrenGoodsVO.setIcon(item.getIcon());
-                childrenGoodsVO.setParentId(category.getId());
-                childrenGoodsVO.setParentName(category.getName());
-                queryWrapper.clear();
-                List<Goods> goodsList = goodsMapper.selectList(queryWrapper.eq(Goods::getCategoryId, item.getId()));
-                List<RecommendGoodsVO> goodsVOList = GoodsConvert.INSTANCE.convertToRecommendGoodsVOList(goodsList);
-                childrenGoodsVO.setGoods(goodsVOList);
-                categoryChildrenGoodsList.add(childrenGoodsVO);
-
-            }
-            categoryVO.setChildren(categoryChildrenGoodsList);
-            list.add(categoryVO);
-        }
+        return categoryTreeCache.get().getCategories();
+    }
 
-        return list;
+    /**
+     * tab分类页-商品分类快照(包含版本号)
+     *
+     * @return
+     */
+    @Override
+    public CategorySnapshot getCategorySnapshot() {
+        return categoryTreeCache.get();
     }
 }
@@ -1,12 +1,19 @@
 package com.soft2242.shop.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.soft2242.shop.common.cache.CartSummaryCache;
+import com.soft2242.shop.common.cache.GoodsDetailCache;
+import com.soft2242.shop.common.cache.GuessLikeFeed;
+import com.soft2242.shop.common.cache.SimilarGoodsCache;
+import com.soft2242.shop.common.cache.TabGoodsCache;
 import com.soft2242.shop.common.exception.ServerException;
 import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.common.search.GoodsSearchIndex;
+import com.soft2242.shop.common.search.SuggestIndex;
 import com.soft2242.shop.convert.GoodsConvert;
 import com.soft2242.shop.entity.*;
 import com.soft2242.shop.mapper.*;
+import com.soft2242.shop.query.GoodsSearchQuery;
 import com.soft2242.shop.query.Query;
 import com.soft2242.shop.query.RecommendByTabGoodsQuery;
 import com.soft2242.shop.service.GoodsService;
@@ -18,6 +25,8 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -35,6 +44,13 @@ public class GoodsServiceImpl extends ServiceImpl<GoodsMapper, Goods> implements
     private final GoodsDetailMapper goodsDetailMapper;
     private final GoodsSpecificationMapper goodsSpecificationMapper;
     private final GoodsSpecificationDetailMapper goodsSpecificationDetailMapper;
+    private final GoodsDetailCache goodsDetailCache;
+    private final SimilarGoodsCache similarGoodsCache;
+    private final TabGoodsCache tabGoodsCache;
+    private final GuessLikeFeed guessLikeFeed;
+    private final GoodsSearchIndex goodsSearchIndex;
+    private final SuggestIndex suggestIndex;
+    private final CartSummaryCache cartSummaryCache;
 
     /**
      * 热门推荐
@@ -44,9 +60,19 @@ public class GoodsServiceImpl extends ServiceImpl<GoodsMapper, Goods> implements
      */
     @Override
     public IndexTabRecommendVO getTabRecommendGoodsByTabId(RecommendByTabGoodsQuery query) {
+        return tabGoodsCache.get(query.getSubType(), query.getPage(), query.getPageSize(),
+            key -> loadTabRecommendGoods(query));
+    }
+
+    /**
+     * 从数据库查询热门推荐：所有tab的同一页商品一次查询，商品总数一次分组统计
+     *
+     * @param query
+     * @return
+     */
+    private IndexTabRecommendVO loadTabRecommendGoods(RecommendByTabGoodsQuery query) {
         // 1.根据推荐的recommendId查询实体
         IndexRecommend indexRecommend = indexRecommendMapper.selectById(query.getSubType());
-        System.out.println(query.getSubType());
         if (indexRecommend == null) {
             throw new ServerException("推荐分类不存在");
         }
@@ -58,17 +84,25 @@ public class GoodsServiceImpl extends ServiceImpl<GoodsMapper, Goods> implements
             throw new ServerException("该分类不存在tab分类");
         }
 
+        // 2.按tab分组查询商品和商品总数
+        List<Integer> tabIds = tabList.stream().map(IndexRecommendTab::getId).collect(Collectors.toList());
+        Map<Integer, List<Goods>> tabGoodsMap = baseMapper
+            .selectPageByTabIds(tabIds, (query.getPage() - 1) * query.getPageSize(), query.getPageSize())
+            .stream().collect(Collectors.groupingBy(Goods::getTabId));
+        Map<Integer, Long> tabCountMap = baseMapper.countByTabIds(tabIds).stream()
+            .collect(Collectors.toMap(TabGoodsCountVO::getTabId, TabGoodsCountVO::getTotal));
+
         List<IndexTabGoodsVO> list = new ArrayList<>();
         for (IndexRecommendTab item : tabList) {
             IndexTabGoodsVO tabGoods = new IndexTabGoodsVO();
             tabGoods.setId(item.getId());
             tabGoods.setName(item.getName());
-            Page<Goods> page = new Page<>(query.getPage(), query.getPageSize());
-            Page<Goods> goodsPage = baseMapper.selectPage(page, new LambdaQueryWrapper<Goods>());
-            List<RecommendGoodsVO> goodsList =
-                GoodsConvert.INSTANCE.convertToRecommendGoodsVOList(goodsPage.getRecords());
+            List<RecommendGoodsVO> goodsList = GoodsConvert.INSTANCE
+                .convertToRecommendGoodsVOList(tabGoodsMap.getOrDefault(item.getId(), List.of()));
+            long total = tabCountMap.getOrDefault(item.getId(), 0L);
+            long pages = (total + query.getPageSize() - 1) / query.getPageSize();
             PageResult<RecommendGoodsVO> result =
-                new PageResult<>(page.getTotal(), query.getPageSize(), query.getPage(), page.getPages(), goodsList);
+                new PageResult<>(total, query.getPageSize(), query.getPage(), pages, goodsList);
             tabGoods.setGoodsItems(result);
             list.add(tabGoods);
         }
@@ -88,10 +122,33 @@ public class GoodsServiceImpl extends ServiceImpl<GoodsMapper, Goods> implements
      */
     @Override
     public PageResult<RecommendGoodsVO> getRecommendGoodsByPage(Query query) {
-        Page<Goods> page = new Page<>(query.getPage(), query.getPageSize());
-        Page<Goods> goodsPage = baseMapper.selectPage(page, null);
-        List<RecommendGoodsVO> result = GoodsConvert.INSTANCE.convertToRecommendGoodsVOList(goodsPage.getRecords());
-        return new PageResult<>(page.getTotal(), query.getPageSize(), query.getPage(), page.getPages(), result);
+        return guessLikeFeed.getPage(query.getPage(), query.getPageSize());
+    }
+
+    @Override
+    public PageResult<RecommendGoodsVO> getRecommendGoodsByPage(Query query, Integer userId) {
+        return guessLikeFeed.getPage(userId, query.getPage(), query.getPageSize());
+    }
+
+    /**
+     * 商品搜索：从内存索引取当前页的商品id，再批量读取缓存的商品信息
+     *
+     * @param query
+     * @return
+     */
+    @Override
+    public PageResult<RecommendGoodsVO> searchGoods(GoodsSearchQuery query) {
+        if (query.getMinPrice() != null && query.getMaxPrice() != null && query.getMinPrice() > query.getMaxPrice()) {
+            throw new ServerException("最低价格不能大于最高价格");
+        }
+        PageResult<String> ids = goodsSearchIndex.search(query);
+        return new PageResult<>(ids.getCounts(), ids.getPageSize(), ids.getPage(), ids.getPages(),
+            guessLikeFeed.getGoods(ids.getList()));
+    }
+
+    @Override
+    public List<String> suggest(String prefix, Integer size) {
+        return suggestIndex.suggest(prefix.trim(), size);
     }
 
     /**
@@ -102,6 +159,37 @@ public class GoodsServiceImpl extends ServiceImpl<GoodsMapper, Goods> implements
      */
     @Override
     public GoodsVO getGoodsDetail(Integer id) {
+        return goodsDetailCache.get(id, this::loadGoodsDetail);
+    }
+
+    /**
+     * 修改商品价格和运费
+     *
+     * @param id
+     * @param price
+     * @param freight
+     */
+    @Override
+    public void updatePrice(Integer id, Double price, Double freight) {
+        Goods goods = new Goods();
+        goods.setId(String.valueOf(id));
+        goods.setPrice(price);
+        goods.setFreight(freight);
+        if (!updateById(goods)) {
+            throw new ServerException("商品不存在");
+        }
+        // 购物车汇总按旧价格累加，递增价格版本后在读取时重新计算
+        cartSummaryCache.bumpVersion();
+        goodsDetailCache.evict(id);
+    }
+
+    /**
+     * 从数据库查询商品详情，缓存未命中时调用
+     *
+     * @param id
+     * @return
+     */
+    private GoodsVO loadGoodsDetail(Integer id) {
         // 1.根据id获取商品详情
         Goods goods = baseMapper.selectById(id);
         if (goods == null) {
@@ -119,10 +207,8 @@ public class GoodsServiceImpl extends ServiceImpl<GoodsMapper, Goods> implements
         List<GoodsSpecificationDetail> goodsSpecificationDetails = goodsSpecificationDetailMapper.selectList(
             new LambdaQueryWrapper<GoodsSpecificationDetail>().eq(GoodsSpecificationDetail::getGoodsId, goods.getId()));
         goodsVO.setSkus(goodsSpecificationDetails);
-        List<Goods> goodsList = baseMapper.selectList(new LambdaQueryWrapper<Goods>()
-            .eq(Goods::getCategoryId, goods.getCategoryId()).ne(Goods::getId, goods.getId()));
-        List<RecommendGoodsVO> goodsVOList = GoodsConvert.INSTANCE.convertToRecommendGoodsVOList(goodsList);
-        goodsVO.setSimilarProducts(goodsVOList);
+        // 同类商品推荐：该分类下销量最高的前N个商品
+        goodsVO.setSimilarProducts(similarGoodsCache.getSimilarGoods(goods.getCategoryId(), goods.getId()));
         return goodsVO;
     }
 }
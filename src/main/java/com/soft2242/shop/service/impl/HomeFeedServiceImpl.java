@@ -0,0 +1,121 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.entity.Category;
+import com.soft2242.shop.entity.IndexCarousel;
+import com.soft2242.shop.query.Query;
+import com.soft2242.shop.service.*;
+import com.soft2242.shop.vo.HomeFeedVO;
+import com.soft2242.shop.vo.IndexRecommendVO;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * 首页聚合服务实现类
+ * </p>
+ * 各模块并发查询，单个模块超时或出错时使用该模块上一次成功的结果
+ */
+@Slf4j
+@Service
+public class HomeFeedServiceImpl implements HomeFeedService {
+
+    /**
+     * 首页轮播图的投放位置
+     */
+    private static final Integer HOME_DISTRIBUTION_SITE = 1;
+
+    @Autowired
+    private IndexCarouselService indexCarouselService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private IndexRecommendService indexRecommendService;
+
+    @Autowired
+    private GoodsService goodsService;
+
+    @Autowired
+    @Qualifier("homeFeedExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    /**
+     * 单个模块的超时时间(毫秒)
+     */
+    @Value("${shop.home.section-timeout:300}")
+    private long sectionTimeout;
+
+    /**
+     * 猜你喜欢第一页的条数
+     */
+    @Value("${shop.home.guess-like-size:10}")
+    private int guessLikeSize;
+
+    private final AtomicReference<List<IndexCarousel>> lastBanners = new AtomicReference<>();
+    private final AtomicReference<List<Category>> lastCategories = new AtomicReference<>();
+    private final AtomicReference<List<IndexRecommendVO>> lastHotRecommends = new AtomicReference<>();
+    private final AtomicReference<PageResult<RecommendGoodsVO>> lastGuessLike = new AtomicReference<>();
+
+    /**
+     * 首页-聚合数据
+     *
+     * @return
+     */
+    @Override
+    public HomeFeedVO getHomeFeed() {
+        Query query = new Query();
+        query.setPage(1);
+        query.setPageSize(guessLikeSize);
+        CompletableFuture<List<IndexCarousel>> banners =
+            section("banners", () -> indexCarouselService.getList(HOME_DISTRIBUTION_SITE), lastBanners);
+        CompletableFuture<List<Category>> categories =
+            section("categories", categoryService::getIndexCategoryList, lastCategories);
+        CompletableFuture<List<IndexRecommendVO>> hotRecommends =
+            section("hotRecommends", indexRecommendService::getList, lastHotRecommends);
+        CompletableFuture<PageResult<RecommendGoodsVO>> guessLike =
+            section("guessLike", () -> goodsService.getRecommendGoodsByPage(query), lastGuessLike);
+
+        HomeFeedVO homeFeedVO = new HomeFeedVO();
+        homeFeedVO.setBanners(banners.join());
+        homeFeedVO.setCategories(categories.join());
+        homeFeedVO.setHotRecommends(hotRecommends.join());
+        homeFeedVO.setGuessLike(guessLike.join());
+        return homeFeedVO;
+    }
+
+    /**
+     * 异步查询一个模块，超时、出错或线程池已满时返回该模块上一次成功的结果，没有则返回 null
+     */
+    private <T> CompletableFuture<T> section(String name, Supplier<T> supplier, AtomicReference<T> lastResult) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("首页模块{}的查询线程池已满，使用上一次的结果", name);
+            return CompletableFuture.completedFuture(lastResult.get());
+        }
+        return future.orTimeout(sectionTimeout, TimeUnit.MILLISECONDS)
+            .handle((result, e) -> {
+                if (e == null) {
+                    lastResult.set(result);
+                    return result;
+                }
+                log.warn("首页模块{}加载失败，使用上一次的结果", name, e);
+                return lastResult.get();
+            });
+    }
+}
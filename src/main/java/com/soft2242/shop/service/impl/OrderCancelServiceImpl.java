@@ -0,0 +1,139 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.enums.OrderStatusEnum;
+import com.soft2242.shop.mapper.UserOrderMapper;
+import com.soft2242.shop.service.OrderCancelService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.ORDER_CANCEL_QUEUE;
+
+/**
+ * <p>
+ * 待支付订单超时取消服务实现类
+ * </p>
+ * 订单按超时时间存入 zset，定时任务用 Lua 脚本原子地取出一批到期订单，再用一条条件更新批量取消；
+ * 登记失败或队列丢失的订单由数据库定时扫描兜底，按创建时间找出超时仍未支付的订单，用同一条条件更新取消
+ */
+@Slf4j
+@Service
+public class OrderCancelServiceImpl implements OrderCancelService {
+
+    /**
+     * 取出并移除到期的订单id，多个节点同时执行时每个订单只会被一个节点取到
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> POLL_SCRIPT = new DefaultRedisScript<>(
+        "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+        "if #ids > 0 then redis.call('zrem', KEYS[1], unpack(ids)) end " +
+        "return ids", List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserOrderMapper userOrderMapper;
+
+    /**
+     * 订单支付超时时间(分钟)
+     */
+    @Value("${shop.order.pay-timeout:30}")
+    private long payTimeout;
+
+    /**
+     * 每次最多取消的订单数
+     */
+    @Value("${shop.order.cancel-batch-size:200}")
+    private int batchSize;
+
+    @Override
+    public void schedule(Integer orderId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // 订单已经提交，登记失败不能让下单失败，由数据库定时扫描兜底取消
+                    try {
+                        addToQueue(orderId);
+                    } catch (RuntimeException e) {
+                        log.error("订单{}登记超时取消失败", orderId, e);
+                    }
+                }
+            });
+        } else {
+            addToQueue(orderId);
+        }
+    }
+
+    @Override
+    public void unschedule(Integer orderId) {
+        stringRedisTemplate.opsForZSet().remove(ORDER_CANCEL_QUEUE, String.valueOf(orderId));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${shop.order.cancel-interval:5000}")
+    @SuppressWarnings("unchecked")
+    public void cancelExpiredOrders() {
+        while (true) {
+            List<String> ids = stringRedisTemplate.execute(POLL_SCRIPT, List.of(ORDER_CANCEL_QUEUE),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(batchSize));
+            if (ids == null || ids.isEmpty()) {
+                return;
+            }
+            try {
+                // 只取消仍为待付款状态的订单，已支付的订单不受影响
+                int count = userOrderMapper.cancelByIds(
+                    ids.stream().map(Integer::valueOf).collect(Collectors.toList()),
+                    OrderStatusEnum.WAITING_FOR_PAYMENT.getValue(), OrderStatusEnum.CANCELLED.getValue());
+                log.info("超时取消订单{}个", count);
+            } catch (Exception e) {
+                // 取消失败时放回队列，下一轮重试
+                log.error("订单超时取消失败", e);
+                for (String id : ids) {
+                    stringRedisTemplate.opsForZSet().add(ORDER_CANCEL_QUEUE, id, System.currentTimeMillis());
+                }
+                return;
+            }
+            if (ids.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${shop.order.sweep-interval:60000}",
+        fixedDelayString = "${shop.order.sweep-interval:60000}")
+    public void sweepExpiredOrders() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(payTimeout);
+        while (true) {
+            List<Integer> ids = userOrderMapper.selectIdsCreatedBefore(
+                OrderStatusEnum.WAITING_FOR_PAYMENT.getValue(), before, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            int count = userOrderMapper.cancelByIds(ids, OrderStatusEnum.WAITING_FOR_PAYMENT.getValue(),
+                OrderStatusEnum.CANCELLED.getValue());
+            log.info("扫描取消超时订单{}个", count);
+            if (ids.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void addToQueue(Integer orderId) {
+        long deadline = System.currentTimeMillis() + payTimeout * 60 * 1000;
+        stringRedisTemplate.opsForZSet().add(ORDER_CANCEL_QUEUE, String.valueOf(orderId), deadline);
+    }
+}
@@ -0,0 +1,157 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.utils.SnowflakeIdGenerator;
+import com.soft2242.shop.service.OrderNumberService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.ORDER_WORKER;
+
+/**
+ * <p>
+ * 订单编号服务实现类
+ * </p>
+ * 启动时在 Redis 中用 SET NX 抢占一个空闲的机器id，定时续租；续租失败说明租约已过期，重新抢占新的机器id。
+ * 租约剩余时间不足一个续租间隔时(例如 Redis 不可用导致续租一直失败)停止发号，
+ * 避免租约过期后其他实例抢到同一个机器id，生成重复的订单编号
+ */
+@Slf4j
+@Service
+public class OrderNumberServiceImpl implements OrderNumberService {
+
+    /**
+     * 租约仍属于当前实例时续期，返回1；否则返回0
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+        "redis.call('expire', KEYS[1], ARGV[2]) return 1 end " +
+        "return 0", Long.class);
+
+    /**
+     * 租约仍属于当前实例时释放
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end " +
+        "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 数据中心id(0-3)
+     */
+    @Value("${shop.order.datacenter-id:0}")
+    private long datacenterId;
+
+    /**
+     * 机器id租约时长(秒)，续租间隔应明显小于租约时长
+     */
+    @Value("${shop.order.worker-lease:60}")
+    private long workerLease;
+
+    /**
+     * 续租间隔(毫秒)
+     */
+    @Value("${shop.order.worker-renew-interval:20000}")
+    private long renewInterval;
+
+    /**
+     * 当前实例标识，用于确认租约归属
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private volatile long workerId;
+
+    /**
+     * 允许发号的截止时间(毫秒时间戳)，为租约到期时间减去一个续租间隔
+     */
+    private volatile long leaseValidUntil;
+
+    private SnowflakeIdGenerator generator;
+
+    @PostConstruct
+    public void init() {
+        long acquiredAt = System.currentTimeMillis();
+        workerId = acquireWorkerId();
+        generator = new SnowflakeIdGenerator(datacenterId, workerId);
+        leaseValidUntil = validUntil(acquiredAt);
+        log.info("订单编号机器id租用成功，数据中心id：{}，机器id：{}", datacenterId, workerId);
+    }
+
+    @Override
+    public String nextOrderNumber() {
+        if (System.currentTimeMillis() > leaseValidUntil) {
+            throw new ServerException("订单编号机器id租约即将过期，暂时无法下单");
+        }
+        return Long.toString(generator.nextId());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${shop.order.worker-renew-interval:20000}")
+    public void renewLease() {
+        // 以发出请求前的时间作为续租时间，租约到期时间只会估计得更早
+        long renewedAt = System.currentTimeMillis();
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(leaseKey(workerId)), instanceId,
+                String.valueOf(workerLease));
+            if (Long.valueOf(1).equals(renewed)) {
+                leaseValidUntil = validUntil(renewedAt);
+                return;
+            }
+            // 租约已丢失，先停止发号再切换机器id
+            leaseValidUntil = 0;
+            long newWorkerId = acquireWorkerId();
+            log.warn("订单编号机器id{}租约已丢失，切换为{}", workerId, newWorkerId);
+            workerId = newWorkerId;
+            generator.setWorkerId(newWorkerId);
+            leaseValidUntil = validUntil(renewedAt);
+        } catch (RuntimeException e) {
+            // Redis 异常时保留原租约，下一个续租周期重试；租约剩余时间不足时 nextOrderNumber 会停止发号
+            log.error("订单编号机器id{}续租失败", workerId, e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(workerId)), instanceId);
+    }
+
+    /**
+     * 从随机位置开始依次尝试抢占空闲的机器id
+     */
+    private long acquireWorkerId() {
+        long size = SnowflakeIdGenerator.MAX_WORKER_ID + 1;
+        long start = ThreadLocalRandom.current().nextLong(size);
+        for (long i = 0; i < size; i++) {
+            long candidate = (start + i) % size;
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(leaseKey(candidate), instanceId, Duration.ofSeconds(workerLease));
+            if (Boolean.TRUE.equals(acquired)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("没有可用的订单编号机器id");
+    }
+
+    private long validUntil(long leasedAt) {
+        return leasedAt + workerLease * 1000 - renewInterval;
+    }
+
+    private String leaseKey(long workerId) {
+        return ORDER_WORKER + datacenterId + ":" + workerId;
+    }
+}
@@ -0,0 +1,139 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.service.OrderSubmitService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.ORDER_SUBMIT;
+
+/**
+ * <p>
+ * 订单提交幂等服务实现类
+ * </p>
+ * 令牌首次使用时原子地占位，订单事务提交后记录订单id；重复提交只需一次 Redis 查询，不再进入数据库事务。
+ * 订单事务由这里开启(下单方法加入该事务)，据此判断失败发生在提交之前还是之后：
+ * 只有事务没有提交时才释放令牌，提交后的回调出错时订单已经存在，仍然返回订单id
+ */
+@Slf4j
+@Service
+public class OrderSubmitServiceImpl implements OrderSubmitService {
+
+    /**
+     * 提交中的占位值
+     */
+    private static final String PENDING = "pending";
+
+    /**
+     * 令牌不存在时占位并返回 nil，已存在时返回当前值
+     */
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'EX', ARGV[2]) then return nil end " +
+        "return redis.call('get', KEYS[1])", String.class);
+
+    /**
+     * 订单事务超时时间(秒)，提交中占位的过期时间必须远大于该值
+     */
+    private static final int SUBMIT_TIMEOUT = 30;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 提交中占位的过期时间(秒)，提交异常中断时占位自动释放；必须远大于下单事务的超时时间，
+     * 否则事务未结束时占位过期，同一令牌可以再次提交
+     */
+    @Value("${shop.order.submit-pending-expire:300}")
+    private long pendingExpire;
+
+    /**
+     * 已提交令牌的保留时间(分钟)
+     */
+    @Value("${shop.order.submit-token-expire:1440}")
+    private long tokenExpire;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setTimeout(SUBMIT_TIMEOUT);
+    }
+
+    @Override
+    public String issueToken() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Override
+    public Integer submit(Integer userId, String token, Supplier<Integer> submitter) {
+        if (StringUtils.isBlank(token)) {
+            return submitter.get();
+        }
+        String key = ORDER_SUBMIT + userId + ":" + token;
+        String existing = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(key), PENDING, String.valueOf(pendingExpire));
+        if (existing != null) {
+            if (PENDING.equals(existing)) {
+                throw new ServerException("订单正在提交，请勿重复提交");
+            }
+            return Integer.valueOf(existing);
+        }
+        AtomicReference<Integer> created = new AtomicReference<>();
+        AtomicBoolean committed = new AtomicBoolean();
+        Integer orderId;
+        try {
+            orderId = transactionTemplate.execute(status -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int completionStatus) {
+                        committed.set(completionStatus == STATUS_COMMITTED);
+                    }
+                });
+                created.set(submitter.get());
+                return created.get();
+            });
+        } catch (RuntimeException e) {
+            if (committed.get()) {
+                // 事务已经提交，出错的是提交后的回调，订单有效，不能释放令牌让客户端重复下单
+                log.error("订单{}已提交，提交后的处理失败", created.get(), e);
+                orderId = created.get();
+            } else {
+                // 事务未提交时释放令牌，允许客户端使用同一令牌重试
+                try {
+                    stringRedisTemplate.delete(key);
+                } catch (RuntimeException deleteError) {
+                    e.addSuppressed(deleteError);
+                }
+                throw e;
+            }
+        }
+        // 订单已经提交，记录结果失败时不能让客户端误以为下单失败；占位保留到过期，期间重复提交会被拒绝
+        try {
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(orderId), Duration.ofMinutes(tokenExpire));
+        } catch (RuntimeException e) {
+            log.error("记录订单提交令牌失败，用户id：{}，订单id：{}", userId, orderId, e);
+        }
+        return orderId;
+    }
+}
@@ -0,0 +1,384 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.common.utils.LongIntHashMap;
+import com.soft2242.shop.mapper.UserOrderGoodsMapper;
+import com.soft2242.shop.mapper.UserOrderMapper;
+import com.soft2242.shop.service.RecommendService;
+import com.soft2242.shop.vo.UserPurchaseVO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_GUESS_LIKE_USER;
+
+/**
+ * <p>
+ * 个性化推荐服务实现类
+ * </p>
+ * 基于商品共同购买的协同过滤。按用户id范围分区，每个分区用自己的游标流式读取购买记录，内存中不保存用户的购买列表：
+ * 1. 各分区并行统计商品购买人数和商品对共同购买人数(商品对打包为 long 键，计数保存在基本类型哈希表中)，
+ * 分区内的计数达到上限后合并到全局计数并清空，内存只与商品对数量有关，不随用户数增长；
+ * 2. 按余弦相似度为每个商品保留最相似的若干商品，之后释放全局计数；
+ * 3. 各分区再次读取购买记录，为每个用户汇总已购商品的相似商品得分，取前 N 个分批写入 Redis
+ */
+@Slf4j
+@Service
+public class RecommendServiceImpl implements RecommendService {
+
+    private static final String REBUILD_LOCK = "goods:guess:user:lock";
+
+    /**
+     * 持有者与当前值一致时才释放锁
+     */
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0", Long.class);
+
+    /**
+     * 每批写入 Redis 的用户数
+     */
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    @Autowired
+    private UserOrderGoodsMapper userOrderGoodsMapper;
+
+    @Autowired
+    private UserOrderMapper userOrderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 并行分区数，默认为 CPU 核数；每个分区计算期间占用一个数据库连接
+     */
+    @Value("${shop.recommend.parallelism:0}")
+    private int parallelism;
+
+    /**
+     * 分区内商品对计数达到该数量后合并到全局计数
+     */
+    @Value("${shop.recommend.merge-threshold:1000000}")
+    private int mergeThreshold;
+
+    /**
+     * 每个用户参与计算的最大商品数，限制单个用户产生的商品对数量
+     */
+    @Value("${shop.recommend.max-basket:50}")
+    private int maxBasket;
+
+    /**
+     * 每个商品保留的相似商品数
+     */
+    @Value("${shop.recommend.neighbors:20}")
+    private int neighborSize;
+
+    /**
+     * 每个用户的推荐商品数
+     */
+    @Value("${shop.recommend.size:100}")
+    private int recommendSize;
+
+    /**
+     * 推荐结果过期时间(小时)，应大于计算周期
+     */
+    @Value("${shop.recommend.expire:48}")
+    private long expire;
+
+    @Override
+    @Scheduled(cron = "${shop.recommend.cron:0 0 3 * * ?}")
+    public void rebuild() {
+        // 多节点部署时同一时刻只允许一个节点计算
+        String owner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK, owner, Duration.ofHours(1));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int partitionCount = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(partitionCount);
+        try {
+            long[] bounds = partitionBounds(partitionCount);
+            if (bounds.length == 0) {
+                return;
+            }
+
+            // 全局计数只在计算相似商品期间保留
+            Map<Integer, int[]> neighborIds = new HashMap<>();
+            Map<Integer, double[]> neighborScores = new HashMap<>();
+            int pairCount = buildNeighbors(countPairs(pool, bounds), neighborIds, neighborScores);
+
+            // 各分区并行生成用户推荐并写入 Redis
+            List<ForkJoinTask<Integer>> recommendTasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                recommendTasks.add(pool.submit(() -> recommend(from, to, neighborIds, neighborScores)));
+            }
+            int users = 0;
+            for (ForkJoinTask<Integer> task : recommendTasks) {
+                users += task.join();
+            }
+            log.info("个性化推荐计算完成，商品对{}个，用户{}个，耗时{}ms", pairCount, users,
+                System.currentTimeMillis() - start);
+        } finally {
+            pool.shutdown();
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, List.of(REBUILD_LOCK), owner);
+        }
+    }
+
+    /**
+     * 把有订单的用户id范围均分为若干个左闭右开区间
+     *
+     * @return 区间边界，没有订单时为空数组
+     */
+    private long[] partitionBounds(int partitionCount) {
+        Integer min = userOrderMapper.selectMinUserId();
+        Integer max = userOrderMapper.selectMaxUserId();
+        if (min == null || max == null) {
+            return new long[0];
+        }
+        long span = (long) max - min + 1;
+        int count = (int) Math.min(partitionCount, span);
+        long[] bounds = new long[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = min + span * i / count;
+        }
+        return bounds;
+    }
+
+    /**
+     * 流式读取区间内的购买记录，记录按用户id排序，每读完一个用户的商品调用一次 consumer，
+     * 商品数组只在调用期间有效
+     */
+    private void forEachBasket(long fromUserId, long toUserId, BasketConsumer consumer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<UserPurchaseVO> cursor = userOrderGoodsMapper.scanUserPurchases(fromUserId, toUserId)) {
+                int currentUser = -1;
+                int[] basket = new int[maxBasket];
+                int basketSize = 0;
+                for (UserPurchaseVO purchase : cursor) {
+                    if (purchase.getUserId() != currentUser) {
+                        if (basketSize > 0) {
+                            consumer.accept(currentUser, basket, basketSize);
+                        }
+                        currentUser = purchase.getUserId();
+                        basketSize = 0;
+                    }
+                    Integer goodsId = parseGoodsId(purchase.getGoodsId());
+                    if (goodsId != null && basketSize < maxBasket) {
+                        basket[basketSize++] = goodsId;
+                    }
+                }
+                if (basketSize > 0) {
+                    consumer.accept(currentUser, basket, basketSize);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 各分区并行统计共同购买次数，分批合并到全局计数
+     */
+    private PairCounts countPairs(ForkJoinPool pool, long[] bounds) {
+        PairCounts total = new PairCounts();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long from = bounds[i];
+            long to = bounds[i + 1];
+            tasks.add(pool.submit(() -> countPairs(from, to, total)));
+        }
+        tasks.forEach(ForkJoinTask::join);
+        return total;
+    }
+
+    /**
+     * 统计区间内每个商品的购买人数和每对商品的共同购买人数，分区计数达到上限时合并到全局计数
+     */
+    private void countPairs(long fromUserId, long toUserId, PairCounts total) {
+        PairCounts[] local = {new PairCounts()};
+        forEachBasket(fromUserId, toUserId, (userId, basket, size) -> {
+            PairCounts counts = local[0];
+            for (int i = 0; i < size; i++) {
+                counts.items.addTo(itemKey(basket[i]), 1);
+                for (int j = i + 1; j < size; j++) {
+                    counts.pairs.addTo(pairKey(basket[i], basket[j]), 1);
+                }
+            }
+            if (counts.pairs.size() >= mergeThreshold) {
+                total.merge(counts);
+                local[0] = new PairCounts();
+            }
+        });
+        total.merge(local[0]);
+    }
+
+    /**
+     * 按余弦相似度 co(a,b) / sqrt(n(a) * n(b)) 为每个商品保留最相似的商品
+     *
+     * @return 商品对数量
+     */
+    private int buildNeighbors(PairCounts counts, Map<Integer, int[]> neighborIds,
+        Map<Integer, double[]> neighborScores) {
+        Map<Integer, PriorityQueue<double[]>> heaps = new HashMap<>();
+        counts.pairs.forEach((key, co) -> {
+            int a = (int) (key >>> 32);
+            int b = (int) key;
+            double score = co / Math.sqrt((double) counts.items.get(itemKey(a)) * counts.items.get(itemKey(b)));
+            offer(heaps.computeIfAbsent(a, k -> new PriorityQueue<>((x, y) -> Double.compare(x[1], y[1]))), b, score);
+            offer(heaps.computeIfAbsent(b, k -> new PriorityQueue<>((x, y) -> Double.compare(x[1], y[1]))), a, score);
+        });
+        heaps.forEach((goodsId, heap) -> {
+            int[] ids = new int[heap.size()];
+            double[] scores = new double[heap.size()];
+            int i = 0;
+            for (double[] entry : heap) {
+                ids[i] = (int) entry[0];
+                scores[i++] = entry[1];
+            }
+            neighborIds.put(goodsId, ids);
+            neighborScores.put(goodsId, scores);
+        });
+        return counts.pairs.size();
+    }
+
+    private void offer(PriorityQueue<double[]> heap, int goodsId, double score) {
+        if (heap.size() < neighborSize) {
+            heap.offer(new double[]{goodsId, score});
+        } else if (heap.peek()[1] < score) {
+            heap.poll();
+            heap.offer(new double[]{goodsId, score});
+        }
+    }
+
+    /**
+     * 为区间内每个用户汇总已购商品的相似商品得分，排除已购商品后取前 N 个，分批写入 Redis
+     *
+     * @return 有推荐结果的用户数
+     */
+    private int recommend(long fromUserId, long toUserId, Map<Integer, int[]> neighborIds,
+        Map<Integer, double[]> neighborScores) {
+        Map<String, List<String>> batch = new HashMap<>();
+        int[] users = {0};
+        forEachBasket(fromUserId, toUserId, (userId, basket, size) -> {
+            Map<Integer, Double> scores = new HashMap<>();
+            for (int k = 0; k < size; k++) {
+                int[] ids = neighborIds.get(basket[k]);
+                if (ids == null) {
+                    continue;
+                }
+                double[] similarities = neighborScores.get(basket[k]);
+                for (int i = 0; i < ids.length; i++) {
+                    scores.merge(ids[i], similarities[i], Double::sum);
+                }
+            }
+            for (int k = 0; k < size; k++) {
+                scores.remove(basket[k]);
+            }
+            if (scores.isEmpty()) {
+                return;
+            }
+            List<String> top = scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                .limit(recommendSize).map(entry -> String.valueOf(entry.getKey())).toList();
+            batch.put(GOODS_GUESS_LIKE_USER + userId, top);
+            users[0]++;
+            if (batch.size() >= WRITE_BATCH_SIZE) {
+                // 管道同步执行完毕后再清空
+                write(batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        return users[0];
+    }
+
+    /**
+     * 在一次管道中替换一批用户的推荐列表
+     */
+    private void write(Map<String, List<String>> batch) {
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                batch.forEach((key, ids) -> {
+                    redis.delete(key);
+                    redis.opsForList().rightPushAll(key, ids);
+                    redis.expire(key, expire, TimeUnit.HOURS);
+                });
+                return null;
+            }
+        });
+    }
+
+    private Integer parseGoodsId(String goodsId) {
+        try {
+            return Integer.valueOf(goodsId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个商品的计数键，高32位为0，与商品对的键不冲突(商品id从1开始)
+     */
+    private static long itemKey(int goodsId) {
+        return goodsId;
+    }
+
+    /**
+     * 商品对的计数键，小id在高32位
+     */
+    private static long pairKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * 处理一个用户购买的商品
+     */
+    @FunctionalInterface
+    private interface BasketConsumer {
+        void accept(int userId, int[] basket, int size);
+    }
+
+    /**
+     * 商品购买人数和商品对共同购买人数
+     */
+    private static class PairCounts {
+        private final LongIntHashMap items = new LongIntHashMap(1 << 12);
+        private final LongIntHashMap pairs = new LongIntHashMap(1 << 16);
+
+        private synchronized void merge(PairCounts other) {
+            items.addAll(other.items);
+            pairs.addAll(other.pairs);
+        }
+    }
+}
@@ -2,13 +2,23 @@ package com.soft2242.shop.service.impl;
 
 import com.soft2242.shop.service.RedisService;
 import lombok.AllArgsConstructor;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.Serializable;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 
 /**
  * @description: RedisService实现类
@@ -19,14 +29,19 @@ import java.util.concurrent.TimeUnit;
 @AllArgsConstructor
 public class RedisServiceImpl implements RedisService {
 
-    private final RedisTemplate redisTemplate;
+    /**
+     * SCAN 每次遍历的 COUNT 提示,也是每批 UNLINK 的key数量
+     */
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    private final RedisTemplate<String, Object> redisTemplate;
 
     @Override
     public boolean set(String key, Object value) {
         boolean result = false;
         try {
             // 创建简单值(Redis术语中的string类型)执行操作的对象
-            ValueOperations<Serializable, Object> operations = redisTemplate.opsForValue();
+            ValueOperations<String, Object> operations = redisTemplate.opsForValue();
             operations.set(key, value);
             result = true;
         } catch (Exception e) {
@@ -37,12 +52,39 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public boolean set(String key, Object value, Long expireTime) {
+        return set(key, value, expireTime, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public boolean set(String key, Object value, long expireTime, TimeUnit unit) {
         boolean result = false;
         try {
-            // 创建对简单值(Redis术语中的string类型)执行操作的对象
-            ValueOperations<Serializable, Object> operations = redisTemplate.opsForValue();
-            operations.set(key, value);
-            redisTemplate.expire(key, expireTime, TimeUnit.MINUTES);
+            // 值和超时在同一条 SET EX 命令中写入,不再单独发送 EXPIRE
+            ValueOperations<String, Object> operations = redisTemplate.opsForValue();
+            operations.set(key, value, expireTime, unit);
+            result = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean multiSet(Map<String, ?> values, Long expireTime) {
+        if (values.isEmpty()) {
+            return true;
+        }
+        boolean result = false;
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<K, V> valueOperations = operations.opsForValue();
+                    values.forEach((key, value) -> valueOperations.set((K) key, (V) value, expireTime, TimeUnit.MINUTES));
+                    return null;
+                }
+            });
             result = true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -59,7 +101,7 @@ public class RedisServiceImpl implements RedisService {
     @Override
     public <T> T getValue(String key, Class<T> type) {
         Object result = null;
-        ValueOperations<Serializable, Object> operations = redisTemplate.opsForValue();
+        ValueOperations<String, Object> operations = redisTemplate.opsForValue();
         try {
             result = operations.get(key);
             if (result == null) {
@@ -73,27 +115,79 @@ public class RedisServiceImpl implements RedisService {
     }
 
     @Override
-    public void removeKey(String key) {
-        // 检查 key 是否存在
-        if (existsKey(key)) {
-            redisTemplate.delete(key);
+    public <T> List<T> multiGet(Collection<String> keys, Class<T> type) {
+        List<T> values = new ArrayList<>(keys.size());
+        if (keys.isEmpty()) {
+            return values;
+        }
+        ValueOperations<String, Object> operations = redisTemplate.opsForValue();
+        List<Object> results = operations.multiGet(keys);
+        if (results == null) {
+            results = new ArrayList<>();
         }
+        for (int i = 0; i < keys.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            values.add(type.isInstance(result) ? type.cast(result) : null);
+        }
+        return values;
+    }
 
+    @Override
+    public void removeKey(String key) {
+        // DEL 对不存在的 key 本身就是空操作,无需先检查
+        redisTemplate.delete(key);
     }
 
     @Override
     public void remove(String... keys) {
-        for (String key : keys) {
-            removeKey(key);
+        if (keys.length > 0) {
+            redisTemplate.delete(Arrays.asList(keys));
         }
     }
 
     @Override
     public void removePattern(String pattern) {
-        // 获取所有匹配的键
-        Set<Serializable> keys = redisTemplate.keys(pattern);
-        if (keys != null && keys.size() > 0) {
-            redisTemplate.delete(keys);
+        removePattern(pattern, removed -> {
+        });
+    }
+
+    @Override
+    public long removePattern(String pattern, LongConsumer progress) {
+        // SCAN 每次只遍历一小段 keyspace,避免 KEYS 一次性阻塞整个 Redis
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        long removed = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    removed += unlink(batch);
+                    progress.accept(removed);
+                }
+            }
         }
+        if (!batch.isEmpty()) {
+            removed += unlink(batch);
+            progress.accept(removed);
+        }
+        return removed;
+    }
+
+    @Async
+    @Override
+    public CompletableFuture<Long> removePatternAsync(String pattern, LongConsumer progress) {
+        return CompletableFuture.completedFuture(removePattern(pattern, progress));
+    }
+
+    /**
+     * UNLINK 一批key(内存回收在 Redis 后台线程完成)并清空该批次
+     *
+     * @param batch key批次
+     * @return 删除数量
+     */
+    private long unlink(List<String> batch) {
+        Long count = redisTemplate.unlink(batch);
+        batch.clear();
+        return count == null ? 0 : count;
     }
 }
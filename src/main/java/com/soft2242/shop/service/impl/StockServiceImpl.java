@@ -0,0 +1,304 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.common.cache.GoodsDetailCache;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.enums.StockReserveEnum;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.service.StockService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.*;
+
+/**
+ * <p>
+ * Redis 预扣库存服务实现类
+ * </p>
+ * 预扣和归还通过 Lua 脚本原子执行，同时把变化量累计到 hash 中，由定时任务批量回写数据库。
+ * 每批变化量带有批次id，回写时在同一事务中记录到 t_stock_flush_log，已记录的批次不会再次回写；
+ * 回写和计数器同步都在回写锁内执行，锁带有持有者标识，只由持有者释放
+ */
+@Slf4j
+@Service
+public class StockServiceImpl implements StockService {
+
+    /**
+     * 预扣库存：计数器不存在返回-1，库存不足返回0，成功返回1
+     */
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+        "local stock = redis.call('get', KEYS[1]) " +
+        "if not stock then return -1 end " +
+        "local count = tonumber(ARGV[1]) " +
+        "if tonumber(stock) < count then return 0 end " +
+        "redis.call('decrby', KEYS[1], count) " +
+        "redis.call('hincrby', KEYS[2], ARGV[2], count) " +
+        "return 1", Long.class);
+
+    /**
+     * 归还库存：计数器不存在时忽略
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('exists', KEYS[1]) == 0 then return 0 end " +
+        "local count = tonumber(ARGV[1]) " +
+        "redis.call('incrby', KEYS[1], count) " +
+        "redis.call('hincrby', KEYS[2], ARGV[2], -count) " +
+        "return 1", Long.class);
+
+    /**
+     * 处理中的变化量没有时把待回写的变化量改名为处理中，并为该批次写入批次id；返回批次id，没有可处理的变化量时返回 nil
+     */
+    private static final RedisScript<String> CLAIM_BATCH_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('exists', KEYS[2]) == 0 then " +
+        "if redis.call('exists', KEYS[1]) == 0 then return nil end " +
+        "redis.call('rename', KEYS[1], KEYS[2]) end " +
+        "redis.call('hsetnx', KEYS[2], ARGV[1], ARGV[2]) " +
+        "return redis.call('hget', KEYS[2], ARGV[1])", String.class);
+
+    /**
+     * 用数据库库存减去尚未回写的预扣量覆盖计数器
+     */
+    private static final RedisScript<Long> SYNC_SCRIPT = new DefaultRedisScript<>(
+        "local pending = tonumber(redis.call('hget', KEYS[2], ARGV[2]) or '0') " +
+        "redis.call('set', KEYS[1], tonumber(ARGV[1]) - pending) " +
+        "return 1", Long.class);
+
+    /**
+     * 锁仍属于当前持有者时释放
+     */
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end " +
+        "return 0", Long.class);
+
+    private static final String RECONCILE_LOCK = "stock:reconcile:lock";
+
+    /**
+     * 处理中的变化量 hash 中保存批次id的字段，不会与商品id冲突
+     */
+    private static final String BATCH_FIELD = "#batch";
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private GoodsDetailCache goodsDetailCache;
+
+    /**
+     * 需要开启 Redis 预扣库存的商品id，多个用逗号分隔
+     */
+    @Value("${shop.stock.flash-goods:}")
+    private String[] flashGoods;
+
+    /**
+     * 回写锁的过期时间(秒)，应大于一次回写的最长耗时
+     */
+    @Value("${shop.stock.reconcile-lock-expire:30}")
+    private long lockExpire;
+
+    /**
+     * 回写记录保留天数
+     */
+    @Value("${shop.stock.flush-log-retention:7}")
+    private long flushLogRetention;
+
+    /**
+     * 秒杀商品id，普通商品预扣时据此直接返回，不访问 Redis
+     */
+    private Set<String> flashGoodsIds = Set.of();
+
+    @PostConstruct
+    public void init() {
+        flashGoodsIds = Arrays.stream(flashGoods).map(String::trim).filter(id -> !id.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * 启动时预热配置的秒杀商品库存，之后定时与数据库同步，数据库中的补货因此会反映到计数器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${shop.stock.sync-interval:60000}",
+        fixedDelayString = "${shop.stock.sync-interval:60000}")
+    public void preloadFlashGoods() {
+        if (!flashGoodsIds.isEmpty() && !runLocked(() -> sync(flashGoodsIds))) {
+            log.warn("同步秒杀商品库存失败，回写锁被占用");
+        }
+    }
+
+    @Override
+    public void preloadGoods(String goodsId) {
+        if (!runLocked(() -> sync(Set.of(goodsId)))) {
+            log.warn("同步商品{}库存失败，回写锁被占用", goodsId);
+        }
+    }
+
+    @Override
+    public StockReserveEnum reserveGoods(String goodsId, Integer count) {
+        if (!flashGoodsIds.contains(goodsId)) {
+            return StockReserveEnum.NOT_MANAGED;
+        }
+        StockReserveEnum result = reserve(STOCK_GOODS + goodsId, STOCK_GOODS_DELTA, goodsId, count);
+        if (result == StockReserveEnum.SUCCESS) {
+            releaseOnRollback(() -> releaseGoods(goodsId, count));
+        }
+        return result;
+    }
+
+    @Override
+    public void releaseGoods(String goodsId, Integer count) {
+        release(STOCK_GOODS + goodsId, STOCK_GOODS_DELTA, goodsId, count);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${shop.stock.reconcile-interval:1000}")
+    public void reconcile() {
+        runLocked(this::flush);
+    }
+
+    /**
+     * 定时清理过期的回写记录
+     */
+    @Scheduled(cron = "${shop.stock.flush-log-purge-cron:0 30 4 * * ?}")
+    public void purgeFlushLog() {
+        int count = goodsMapper.deleteStockFlushLogBefore(LocalDateTime.now().minusDays(flushLogRetention));
+        log.info("清理库存回写记录{}条", count);
+    }
+
+    /**
+     * 持有回写锁时执行；多节点部署时同一时刻只允许一个节点回写或同步计数器
+     *
+     * @return 锁被其他节点持有时返回 false
+     */
+    private boolean runLocked(Runnable action) {
+        String owner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+            .setIfAbsent(RECONCILE_LOCK, owner, Duration.ofSeconds(lockExpire));
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+        try {
+            action.run();
+            return true;
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, List.of(RECONCILE_LOCK), owner);
+        }
+    }
+
+    private void flush() {
+        // 回写后商品库存、销量发生变化，清除商品详情缓存
+        goodsDetailCache.evictStockAfterCommit(flushDelta(STOCK_GOODS_DELTA, goodsMapper::applyInventoryDelta));
+    }
+
+    /**
+     * 先回写已有的变化量，再用数据库库存减去回写期间新增的预扣量覆盖计数器；
+     * 读取数据库之后的预扣同时计入计数器和变化量，覆盖时一并扣除，不会丢失
+     */
+    private void sync(Set<String> goodsIds) {
+        flush();
+        for (Goods goods : goodsMapper.selectBatchIds(goodsIds)) {
+            stringRedisTemplate.execute(SYNC_SCRIPT, List.of(STOCK_GOODS + goods.getId(), STOCK_GOODS_DELTA),
+                String.valueOf(goods.getInventory()), goods.getId());
+        }
+    }
+
+    private StockReserveEnum reserve(String stockKey, String deltaKey, String field, Integer count) {
+        Long result = stringRedisTemplate.execute(RESERVE_SCRIPT, List.of(stockKey, deltaKey), String.valueOf(count),
+            field);
+        return StockReserveEnum.of(result);
+    }
+
+    private void release(String stockKey, String deltaKey, String field, Integer count) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(stockKey, deltaKey), String.valueOf(count), field);
+    }
+
+    /**
+     * 当前事务回滚时归还已预扣的库存，不在事务中时不处理
+     */
+    private void releaseOnRollback(Runnable release) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 将变化量 hash 改名为处理中的 key 后分批回写，回写提交后才删除；
+     * 回写失败时处理中的 key 保留，下一轮优先重试，期间新的预扣继续累计到原 key。
+     * 回写与批次记录在同一个事务中提交，提交后删除处理中的 key 失败时，下一轮发现批次已记录，只删除不再回写
+     *
+     * @return 已回写的id
+     */
+    private Set<String> flushDelta(String deltaKey, Function<Map<String, Integer>, Integer> writer) {
+        String processingKey = deltaKey + PROCESSING_SUFFIX;
+        String batchId = stringRedisTemplate.execute(CLAIM_BATCH_SCRIPT, List.of(deltaKey, processingKey),
+            BATCH_FIELD, UUID.randomUUID().toString().replace("-", ""));
+        if (batchId == null) {
+            return Set.of();
+        }
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(processingKey);
+        Set<String> written = new HashSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (goodsMapper.insertStockFlushLog(batchId) == 0) {
+                log.warn("库存变化量批次{}已经回写过，跳过", batchId);
+                return;
+            }
+            Map<String, Integer> batch = new HashMap<>();
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                if (BATCH_FIELD.equals(entry.getKey())) {
+                    continue;
+                }
+                int delta = Integer.parseInt(entry.getValue().toString());
+                if (delta != 0) {
+                    batch.put(entry.getKey().toString(), delta);
+                    written.add(entry.getKey().toString());
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    writer.apply(batch);
+                    batch = new HashMap<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writer.apply(batch);
+            }
+        });
+        stringRedisTemplate.delete(processingKey);
+        return written;
+    }
+}
@@ -2,38 +2,48 @@ package com.soft2242.shop.service.impl;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.soft2242.shop.common.cache.GoodsDetailCache;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.CursorPageResult;
 import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.common.utils.DateUtils;
 import com.soft2242.shop.convert.UserAddressConvert;
 import com.soft2242.shop.convert.UserOrderDetailConvert;
 import com.soft2242.shop.entity.*;
 import com.soft2242.shop.enums.OrderStatusEnum;
+import com.soft2242.shop.enums.StockReserveEnum;
 import com.soft2242.shop.mapper.*;
 import com.soft2242.shop.query.CancelGoodsQuery;
+import com.soft2242.shop.query.OrderCursorQuery;
 import com.soft2242.shop.query.OrderGoodsQuery;
 import com.soft2242.shop.query.OrderPreQuery;
 import com.soft2242.shop.query.OrderQuery;
 import com.soft2242.shop.service.UserOrderGoodsService;
+import com.soft2242.shop.service.OrderCancelService;
+import com.soft2242.shop.service.OrderNumberService;
+import com.soft2242.shop.service.OrderSubmitService;
+import com.soft2242.shop.service.StockService;
 import com.soft2242.shop.service.UserOrderService;
+import com.soft2242.shop.service.UserShoppingCartService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.soft2242.shop.vo.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +57,11 @@ import java.util.stream.Collectors;
 @Service
 public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder> implements UserOrderService {
 
+    /**
+     * 游标中创建时间的格式
+     */
+    private static final String CURSOR_TIME_PATTERN = "yyyyMMddHHmmss";
+
     @Autowired
     private GoodsMapper goodsMapper;
 
@@ -57,31 +72,25 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
     private UserOrderGoodsMapper userOrderGoodsMapper;
 
     @Autowired
-    private UserShoppingCartMapper userShoppingCartMapper;
+    private UserShoppingCartService userShoppingCartService;
 
     @Autowired
     private UserOrderGoodsService userOrderGoodsService;
 
-    private ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
-    private ScheduledFuture<?> cancelTask;
+    @Autowired
+    private StockService stockService;
 
-    @Async
-    public void scheduleOrderCancel(UserOrder userOrder) {
-        cancelTask = executorService.schedule(() -> {
-            // Integer转Byte
-            if (userOrder.getStatus() == OrderStatusEnum.WAITING_FOR_PAYMENT.getValue().byteValue()) {
-                userOrder.setStatus(OrderStatusEnum.CANCELLED.getValue().byteValue());
-                baseMapper.updateById(userOrder);
-            }
-        }, 30, TimeUnit.MINUTES);
-    }
+    @Autowired
+    private GoodsDetailCache goodsDetailCache;
 
-    public void cancelScheduledTask() {
-        if (cancelTask != null && !cancelTask.isDone()) {
-            // 取消定时任务
-            cancelTask.cancel(true);
-        }
-    }
+    @Autowired
+    private OrderCancelService orderCancelService;
+
+    @Autowired
+    private OrderSubmitService orderSubmitService;
+
+    @Autowired
+    private OrderNumberService orderNumberService;
 
     public List<UserAddressVO> getAddressListByUserId(Integer userId, Integer addressId) {
         // 1.根据用户 id 查询该用户的收货地址列表
@@ -114,8 +123,20 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
      * @return
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
+    @Transactional(rollbackFor = Exception.class, timeout = 30)
     public Integer addGoodsOrder(UserOrderVO orderVO) {
+        // 0.秒杀商品先在 Redis 中预扣库存，预扣失败直接返回，不再访问数据库；事务回滚时预扣的库存自动归还
+        Set<String> reservedGoodsIds = new HashSet<>();
+        for (OrderGoodsQuery goodsVO : orderVO.getGoods()) {
+            String goodsId = String.valueOf(goodsVO.getId());
+            StockReserveEnum reserve = stockService.reserveGoods(goodsId, goodsVO.getCount());
+            if (reserve == StockReserveEnum.INSUFFICIENT) {
+                throw new ServerException("商品库存数量不足");
+            }
+            if (reserve == StockReserveEnum.SUCCESS) {
+                reservedGoodsIds.add(goodsId);
+            }
+        }
         // 1.声明订单总支付费用、总运费、总购买件数
         BigDecimal totalPrice = new BigDecimal(0);
         Integer totalCount = 0;
@@ -123,8 +144,8 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         UserOrder userOrder = new UserOrder();
         userOrder.setUserId(orderVO.getUserId());
         userOrder.setAddressId(orderVO.getAddressId());
-        // 订单编号使用uuid随机生成不重复的编号
-        userOrder.setOrderNumber(UUID.randomUUID().toString());
+        // 订单编号按时间递增，避免随机编号导致索引页分裂
+        userOrder.setOrderNumber(orderNumberService.nextOrderNumber());
         userOrder.setDeliveryTimeType(orderVO.getDeliveryType().byteValue());
         // 提交订单默认状态为待付款
         userOrder.setStatus(OrderStatusEnum.WAITING_FOR_PAYMENT.getValue().byteValue());
@@ -134,14 +155,22 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         userOrder.setPayType(orderVO.getPayType().byteValue());
         userOrder.setPayChannel(orderVO.getPayChannel().byteValue());
         baseMapper.insert(userOrder);
-        // 异步取消创建的订单，如果订单创建30分钟后用户没有付款，修改订单状态为取消
-        scheduleOrderCancel(userOrder);
+        // 登记超时取消，如果订单创建30分钟后用户没有付款，修改订单状态为取消
+        orderCancelService.schedule(userOrder.getId());
         List<UserOrderGoods> orderGoodsList = new ArrayList<>();
+        // 一次查询出订单中的所有商品
+        Map<String, Goods> goodsMap = goodsMapper.selectMapByIds(
+            orderVO.getGoods().stream().map(OrderGoodsQuery::getId).collect(Collectors.toList()));
+        // 需要在数据库中扣减的库存，同一商品多次购买时数量合并；Redis 已预扣的商品由定时任务批量回写数据库
+        Map<String, Integer> deductMap = new HashMap<>();
         // 遍历用户购买的商品列表，订单-商品表批量添加数据
         for (OrderGoodsQuery goodsVO : orderVO.getGoods()) {
-            Goods goods = goodsMapper.selectById(goodsVO.getId());
-            if (goodsVO.getCount() > goods.getInventory()) {
-                throw new ServerException(goods.getName() + "库存数量不足");
+            Goods goods = goodsMap.get(String.valueOf(goodsVO.getId()));
+            if (goods == null) {
+                throw new ServerException("商品信息不存在");
+            }
+            if (!reservedGoodsIds.contains(goods.getId())) {
+                deductMap.merge(goods.getId(), goodsVO.getCount(), Integer::sum);
             }
             UserOrderGoods userOrderGoods = new UserOrderGoods();
             userOrderGoods.setGoodsId(goods.getId());
@@ -157,17 +186,18 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
             BigDecimal freight = new BigDecimal(userOrderGoods.getFreight().toString());
             BigDecimal goodsPrice = new BigDecimal(userOrderGoods.getPrice().toString());
             BigDecimal count = new BigDecimal(userOrderGoods.getCount().toString());
-            // 减库存
-            goods.setInventory(goods.getInventory() - goodsVO.getCount());
-            // 增加销量
-            goods.setSalesCount(goodsVO.getCount());
             BigDecimal price = goodsPrice.multiply(count).add(freight);
             totalPrice = totalPrice.add(price);
             totalCount += goodsVO.getCount();
             totalFreight = totalFreight.add(freight);
             orderGoodsList.add(userOrderGoods);
-            goodsMapper.updateById(goods);
         }
+        // 减库存、增加销量：所有商品的库存判断和扣减由一条条件更新完成，受影响行数不足说明有商品库存不足
+        if (!deductMap.isEmpty() && goodsMapper.deductInventoryBatch(deductMap) < deductMap.size()) {
+            throw new ServerException("商品库存数量不足");
+        }
+        // 库存、销量变化后只清除商品详情缓存，不通知推荐、搜索等其他商品缓存
+        goodsDetailCache.evictStockAfterCommit(deductMap.keySet());
 
         userOrderGoodsService.batchUserOrderGoods(orderGoodsList);
         userOrder.setTotalPrice(totalPrice.doubleValue());
@@ -225,8 +255,7 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
 
         SubmitOrderVO submitOrderVO = new SubmitOrderVO();
         // 1.查询用户购物车中选中的商品列表，如果为空直接返回null
-        List<UserShoppingCart> cartList = userShoppingCartMapper.selectList(new LambdaQueryWrapper<UserShoppingCart>()
-            .eq(UserShoppingCart::getUserId, userId).eq(UserShoppingCart::getSelected, true));
+        List<UserShoppingCart> cartList = userShoppingCartService.getSelectedCartList(userId);
         if (cartList.size() == 0) {
             return null;
         }
@@ -241,8 +270,13 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
 
         // 4.查询商品信息并计算每个选购商品的总费用
         List<UserOrderGoodsVO> goodsList = new ArrayList<>();
+        Map<String, Goods> goodsMap = goodsMapper
+            .selectMapByIds(cartList.stream().map(UserShoppingCart::getGoodsId).collect(Collectors.toList()));
         for (UserShoppingCart shoppingCart : cartList) {
-            Goods goods = goodsMapper.selectById(shoppingCart.getGoodsId());
+            Goods goods = goodsMap.get(shoppingCart.getGoodsId());
+            if (goods == null) {
+                throw new ServerException("商品信息不存在");
+            }
             UserOrderGoodsVO userOrderGoodsVO = new UserOrderGoodsVO();
             userOrderGoodsVO.setId(goods.getId());
             userOrderGoodsVO.setName(goods.getName());
@@ -275,6 +309,7 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         submitOrderVO.setUserAddresses(addressList);
         submitOrderVO.setGoods(goodsList);
         submitOrderVO.setSummary(orderInfoVO);
+        submitOrderVO.setSubmitToken(orderSubmitService.issueToken());
         return submitOrderVO;
     }
 
@@ -326,6 +361,7 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         submitOrderVO.setUserAddresses(addressList);
         submitOrderVO.setGoods(goodList);
         submitOrderVO.setSummary(orderInfoVO);
+        submitOrderVO.setSubmitToken(orderSubmitService.issueToken());
         return submitOrderVO;
     }
 
@@ -354,6 +390,7 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         submitOrderVO.setUserAddresses(addressList);
         submitOrderVO.setGoods(goodsList);
         submitOrderVO.setSummary(orderInfoVO);
+        submitOrderVO.setSubmitToken(orderSubmitService.issueToken());
         return submitOrderVO;
     }
 
@@ -381,21 +418,87 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         if (orderRecords.size() == 0) {
             return new PageResult<>(page.getTotal(), query.getPageSize(), query.getPage(), page.getPages(), list);
         }
-        // 5.查询订单对应的商品信息和收货信息
+        // 5.批量查询订单对应的商品信息和收货信息
+        list = buildOrderDetailList(orderRecords);
+        return new PageResult<>(page.getTotal(), query.getPageSize(), query.getPage(), page.getPages(), list);
+    }
+
+    /**
+     * 订单列表(游标分页)
+     * <p>
+     * 按 (create_time, id) 倒序定位下一页，不做 count 查询，翻页耗时与页码无关；
+     * 需要 t_user_order 上的联合索引配合，见 sql/t_user_order_cursor_index.sql
+     *
+     * @param query
+     * @return
+     */
+    @Override
+    public CursorPageResult<OrderDetailVO> getOrderListByCursor(OrderCursorQuery query) {
+        LambdaQueryWrapper<UserOrder> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(UserOrder::getUserId, query.getUserId());
+        if (query.getOrderType() != null && query.getOrderType() != 0) {
+            wrapper.eq(UserOrder::getStatus, query.getOrderType());
+        }
+        // 1.解析游标，只查询排在游标之后的订单
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            String[] cursor = query.getCursor().split("_");
+            LocalDateTime createTime;
+            Integer id;
+            try {
+                createTime = DateUtils.parse(cursor[0], CURSOR_TIME_PATTERN);
+                id = Integer.valueOf(cursor[1]);
+            } catch (DateTimeParseException | ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                throw new ServerException("分页游标无效");
+            }
+            wrapper.and(w -> w.lt(UserOrder::getCreateTime, createTime).or(o -> o
+                .eq(UserOrder::getCreateTime, createTime).lt(UserOrder::getId, id)));
+        }
+        wrapper.orderByDesc(UserOrder::getCreateTime).orderByDesc(UserOrder::getId);
+        // 2.多查一条用于判断是否还有下一页，关闭 count 查询
+        Page<UserOrder> page = new Page<>(1, query.getPageSize() + 1, false);
+        List<UserOrder> orderRecords = baseMapper.selectPage(page, wrapper).getRecords();
+        if (orderRecords.size() == 0) {
+            return new CursorPageResult<>(query.getPageSize(), null, new ArrayList<>());
+        }
+        String nextCursor = null;
+        if (orderRecords.size() > query.getPageSize()) {
+            orderRecords = orderRecords.subList(0, query.getPageSize());
+            UserOrder last = orderRecords.get(orderRecords.size() - 1);
+            nextCursor = DateUtils.format(last.getCreateTime(), CURSOR_TIME_PATTERN) + "_" + last.getId();
+        }
+        // 3.批量查询订单对应的商品信息和收货信息
+        return new CursorPageResult<>(query.getPageSize(), nextCursor, buildOrderDetailList(orderRecords));
+    }
+
+    /**
+     * 组装订单列表，收货地址和订单商品各用一条 in 查询批量获取
+     *
+     * @param orderRecords
+     * @return
+     */
+    private List<OrderDetailVO> buildOrderDetailList(List<UserOrder> orderRecords) {
+        List<Integer> addressIds =
+            orderRecords.stream().map(UserOrder::getAddressId).distinct().collect(Collectors.toList());
+        Map<Integer, UserShippingAddress> addressMap = userShippingAddressMapper.selectBatchIds(addressIds).stream()
+            .collect(Collectors.toMap(UserShippingAddress::getId, Function.identity()));
+        List<Integer> orderIds = orderRecords.stream().map(UserOrder::getId).collect(Collectors.toList());
+        Map<Integer, List<UserOrderGoods>> orderGoodsMap = userOrderGoodsMapper
+            .selectList(new LambdaQueryWrapper<UserOrderGoods>().in(UserOrderGoods::getOrderId, orderIds)).stream()
+            .collect(Collectors.groupingBy(UserOrderGoods::getOrderId));
+
+        List<OrderDetailVO> list = new ArrayList<>();
         for (UserOrder userOrder : orderRecords) {
             OrderDetailVO orderDetailVO = UserOrderDetailConvert.INSTANCE.convertToOrderDetailVO(userOrder);
-            UserShippingAddress userShippingAddress = userShippingAddressMapper.selectById(userOrder.getAddressId());
+            UserShippingAddress userShippingAddress = addressMap.get(userOrder.getAddressId());
             if (userShippingAddress != null) {
                 orderDetailVO.setReceiverContact(userShippingAddress.getReceiver());
                 orderDetailVO.setReceiverAddress(userShippingAddress.getAddress());
                 orderDetailVO.setReceiverMobile(userShippingAddress.getContact());
             }
-            List<UserOrderGoods> userOrderGoods = userOrderGoodsMapper
-                .selectList(new LambdaQueryWrapper<UserOrderGoods>().eq(UserOrderGoods::getOrderId, userOrder.getId()));
-            orderDetailVO.setSkus(userOrderGoods);
+            orderDetailVO.setSkus(orderGoodsMap.getOrDefault(userOrder.getId(), new ArrayList<>()));
             list.add(orderDetailVO);
         }
-        return new PageResult<>(page.getTotal(), query.getPageSize(), query.getPage(), page.getPages(), list);
+        return list;
     }
 
     /**
@@ -420,6 +523,7 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
         userOrder.setCancelReason(query.getCancelReason());
         userOrder.setCloseTime(LocalDateTime.now());
         baseMapper.updateById(userOrder);
+        orderCancelService.unschedule(userOrder.getId());
         OrderDetailVO orderDetailVO = UserOrderDetailConvert.INSTANCE.convertToOrderDetailVO(userOrder);
         // 4.查询订单地址信息
         UserShippingAddress userShippingAddress = userShippingAddressMapper.selectById(userOrder.getAddressId());
@@ -473,18 +577,17 @@ public class UserOrderServiceImpl extends ServiceImpl<UserOrderMapper, UserOrder
      */
     @Override
     public void payOrder(Integer id) {
-        UserOrder userOrder = baseMapper.selectById(id);
-        if (userOrder == null) {
-            throw new ServerException("订单不存在");
-        }
-        if (userOrder.getStatus() != OrderStatusEnum.WAITING_FOR_PAYMENT.getValue().byteValue()) {
+        // 只支付仍为待付款状态的订单，与超时取消并发时只有一个能成功
+        int count = baseMapper.payById(id, OrderStatusEnum.WAITING_FOR_PAYMENT.getValue(),
+            OrderStatusEnum.WAITING_FOR_SHIPMENT.getValue());
+        if (count == 0) {
+            if (baseMapper.selectById(id) == null) {
+                throw new ServerException("订单不存在");
+            }
             throw new ServerException("该订单暂时无法支付");
         }
-        userOrder.setStatus(OrderStatusEnum.WAITING_FOR_SHIPMENT.getValue().byteValue());
-        userOrder.setPayTime(LocalDateTime.now());
-        baseMapper.updateById(userOrder);
-        // 订单支付成功,异步任务取消
-        cancelScheduledTask();
+        // 订单支付成功,移除超时取消
+        orderCancelService.unschedule(id);
     }
 
     /**
@@ -5,6 +5,7 @@ import static com.soft2242.shop.common.constant.APIConstant.*;
 import com.alibaba.fastjson2.JSON;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.soft2242.shop.common.cache.TokenCache;
 import com.soft2242.shop.common.utils.AliyunResource;
 import com.soft2242.shop.common.utils.FileResource;
 import com.soft2242.shop.convert.UserConvert;
@@ -34,6 +35,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
@@ -49,6 +51,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     private final RedisService service;
     private final FileResource fileResource;
     private final AliyunResource aliyunResource;
+    private final TokenCache tokenCache;
 
     /**
      * 用户登录
@@ -92,7 +95,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         UserTokenVO tokenVO = new UserTokenVO(userVO.getId());
 
         String token = JWTUtils.generateToken(JWT_SECRET, tokenVO.toMap());
-        service.set(APP_NAME + userVO.getId(), token, APP_TOKEN_EXPIRE_TIME);
+        service.set(APP_NAME + userVO.getId(), token, APP_TOKEN_EXPIRE_TIME, TimeUnit.SECONDS);
+        // 旧 token 已失效，通知所有节点清除本地缓存
+        tokenCache.revoke(userVO.getId());
         System.out.println(token);
         userVO.setToken(token);
         return userVO;
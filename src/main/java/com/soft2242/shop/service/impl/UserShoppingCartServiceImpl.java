@@ -1,20 +1,27 @@
 package com.soft2242.shop.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.soft2242.shop.common.cache.CartCache;
+import com.soft2242.shop.common.cache.CartSummaryCache;
 import com.soft2242.shop.common.exception.ServerException;
 import com.soft2242.shop.entity.Goods;
 import com.soft2242.shop.entity.UserShoppingCart;
 import com.soft2242.shop.mapper.GoodsMapper;
 import com.soft2242.shop.mapper.UserShoppingCartMapper;
 import com.soft2242.shop.query.CartQuery;
+import com.soft2242.shop.query.CartSelectedQuery;
 import com.soft2242.shop.query.EditCartQuery;
 import com.soft2242.shop.service.UserShoppingCartService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.soft2242.shop.vo.CartGoodsVO;
+import com.soft2242.shop.vo.CartSummaryVO;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +37,8 @@ import java.util.stream.Collectors;
 public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMapper, UserShoppingCart>
     implements UserShoppingCartService {
     private final GoodsMapper goodsMapper;
+    private final CartCache cartCache;
+    private final CartSummaryCache cartSummaryCache;
 
     /**
      * 添加购物车
@@ -47,7 +56,18 @@ public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMap
         if (query.getCount() > goods.getInventory()) {
             throw new ServerException("商品库存不足");
         }
-        // 插入购物车信息
+        // Redis 购物车中已有同一商品和属性时原子地累加数量，期间被删除时按新加入处理
+        if (cartCache.isEnabled()) {
+            UserShoppingCart cachedCart = cartCache.findItem(query.getUserId(), goods.getId(), query.getAttrsText());
+            if (cachedCart != null) {
+                cachedCart = cartCache.addCount(query.getUserId(), cachedCart.getId(), query.getCount());
+            }
+            if (cachedCart != null) {
+                cartSummaryCache.invalidate(query.getUserId());
+                return buildCartGoodsVO(cachedCart, goods);
+            }
+        }
+        // 插入购物车信息，同一商品和属性已存在时在一条语句中累加数量
         UserShoppingCart userShoppingCart = new UserShoppingCart();
         userShoppingCart.setUserId(query.getUserId());
         userShoppingCart.setGoodsId(goods.getId());
@@ -55,21 +75,16 @@ public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMap
         userShoppingCart.setCount(query.getCount());
         userShoppingCart.setAttrsText(query.getAttrsText());
         userShoppingCart.setSelected(false);
-        baseMapper.insert(userShoppingCart);
-
-        // 返回用户添加购车信息
-        CartGoodsVO goodsVO = new CartGoodsVO();
-        goodsVO.setId(userShoppingCart.getId());
-        goodsVO.setName(goods.getName());
-        goodsVO.setAttrsText(query.getAttrsText());
-        goodsVO.setPrice(userShoppingCart.getPrice());
-        goodsVO.setNowPrice(goods.getPrice());
-        goodsVO.setSelected(userShoppingCart.getSelected());
-        goodsVO.setStock(goods.getInventory());
-        goodsVO.setCount(query.getCount());
-        goodsVO.setPicture(goods.getCover());
-        goodsVO.setDiscount(goods.getDiscount());
-        return goodsVO;
+        boolean merged = baseMapper.upsertCart(userShoppingCart) > 1;
+        boolean cached = cartCache.isEnabled() && cartCache.addItem(query.getUserId(), userShoppingCart);
+        if (merged) {
+            cartSummaryCache.invalidate(query.getUserId());
+            if (!cached) {
+                // 与已有记录合并，返回合并后的数量和选中状态
+                userShoppingCart = baseMapper.selectById(userShoppingCart.getId());
+            }
+        }
+        return buildCartGoodsVO(userShoppingCart, goods);
     }
 
     /**
@@ -80,6 +95,9 @@ public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMap
      */
     @Override
     public List<CartGoodsVO> shopCartList(Integer userId) {
+        if (cartCache.isEnabled()) {
+            return buildCartGoodsList(cartCache.getItems(userId));
+        }
         List<CartGoodsVO> list = baseMapper.getCartGoodsInfo(userId);
         return list;
     }
@@ -92,19 +110,31 @@ public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMap
      */
     @Override
     public CartGoodsVO editCart(EditCartQuery query) {
-        UserShoppingCart userShoppingCart = baseMapper.selectById(query.getId());
+        if (cartCache.isEnabled()) {
+            return editCachedCart(query);
+        }
+        // 只能修改自己购物车中的商品
+        UserShoppingCart userShoppingCart = baseMapper.selectOne(new LambdaQueryWrapper<UserShoppingCart>()
+            .eq(UserShoppingCart::getId, query.getId()).eq(UserShoppingCart::getUserId, query.getUserId()));
         if (userShoppingCart == null) {
             throw new ServerException("购物车信息不存在");
         }
 
-        userShoppingCart.setCount(query.getCount());
-        userShoppingCart.setSelected(query.getSelected());
-        baseMapper.updateById(userShoppingCart);
-        // 查询购物车信息
+        // 查询购物车信息，库存不足时不修改
         Goods goods = goodsMapper.selectById(userShoppingCart.getGoodsId());
         if (query.getCount() > goods.getInventory()) {
             throw new ServerException(goods.getName() + "库存数量不足");
         }
+        Boolean oldSelected = userShoppingCart.getSelected();
+        Integer oldCount = userShoppingCart.getCount();
+
+        userShoppingCart.setCount(query.getCount());
+        userShoppingCart.setSelected(query.getSelected());
+        long revision = cartSummaryCache.begin(userShoppingCart.getUserId());
+        baseMapper.updateById(userShoppingCart);
+        applySummaryDelta(userShoppingCart.getUserId(), revision, goods, oldSelected, oldCount,
+            query.getSelected() != null ? query.getSelected() : oldSelected,
+            query.getCount() != null ? query.getCount() : oldCount);
         CartGoodsVO goodsVO = new CartGoodsVO();
         goodsVO.setId(userShoppingCart.getId());
         goodsVO.setName(goods.getName());
@@ -127,17 +157,14 @@ public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMap
      */
     @Override
     public void removeCartGoods(Integer userId, List<Integer> ids) {
-        // 1.查询用户购物车列表
-        List<UserShoppingCart> cartList =
-            baseMapper.selectList(new LambdaQueryWrapper<UserShoppingCart>().eq(UserShoppingCart::getUserId, userId));
-        if (cartList.size() == 0) {
-            return;
-        }
-        // 2.与需要删除的购物车交集
-        List<UserShoppingCart> deleteCartList =
-            cartList.stream().filter((item -> ids.contains(item.getId()))).collect(Collectors.toList());
-        // 3.删除购物车信息
-        removeBatchByIds(deleteCartList);
+        if (cartCache.isEnabled()) {
+            cartCache.removeItems(userId, cartCache.getItems(userId, ids));
+        } else {
+            // 按用户id和购物车id一条语句删除，其他用户的购物车不受影响
+            baseMapper.deleteByUserIdAndIds(userId, ids);
+        }
+        // 修改后再失效汇总，修改前已开始计算的汇总不会再写入
+        cartSummaryCache.invalidate(userId);
     }
 
     /**
@@ -148,15 +175,200 @@ public class UserShoppingCartServiceImpl extends ServiceImpl<UserShoppingCartMap
      */
     @Override
     public void editCartSelected(Boolean selected, Integer userId) {
-        // 1.查询用户的购物车列表
-        List<UserShoppingCart> cartList =
-            baseMapper.selectList(new LambdaQueryWrapper<UserShoppingCart>().eq(UserShoppingCart::getUserId, userId));
-        if (cartList.size() == 0) {
-            return;
-        }
-        // 2.批量修改购物车选中状态
-        cartList.stream().forEach((item -> item.setSelected(selected)));
-        // 3.数据库数据更新
-        saveOrUpdateBatch(cartList);
+        if (cartCache.isEnabled()) {
+            List<UserShoppingCart> cartList = cartCache.getItems(userId);
+            cartList.forEach(item -> item.setSelected(selected));
+            cartCache.updateItems(userId, cartList);
+        } else {
+            baseMapper.updateSelectedByUserId(userId, selected);
+        }
+        cartSummaryCache.invalidate(userId);
+    }
+
+    /**
+     * 购物车部分商品选中/取消选中
+     *
+     * @param query
+     */
+    @Override
+    public void editCartSelectedByIds(CartSelectedQuery query) {
+        if (cartCache.isEnabled()) {
+            List<UserShoppingCart> cartList = cartCache.getItems(query.getUserId(), query.getIds());
+            cartList.forEach(item -> item.setSelected(query.getSelected()));
+            cartCache.updateItems(query.getUserId(), cartList);
+        } else {
+            baseMapper.updateSelectedByIds(query.getUserId(), query.getIds(), query.getSelected());
+        }
+        cartSummaryCache.invalidate(query.getUserId());
+    }
+
+    /**
+     * 购物车选中商品汇总
+     *
+     * @param userId
+     * @return
+     */
+    @Override
+    public CartSummaryVO getCartSummary(Integer userId) {
+        return cartSummaryCache.get(userId, this::computeSummary);
+    }
+
+    /**
+     * 查询用户购物车中选中的商品
+     *
+     * @param userId
+     * @return
+     */
+    @Override
+    public List<UserShoppingCart> getSelectedCartList(Integer userId) {
+        if (cartCache.isEnabled()) {
+            return cartCache.getItems(userId).stream().filter(item -> Boolean.TRUE.equals(item.getSelected()))
+                .collect(Collectors.toList());
+        }
+        return baseMapper.selectList(new LambdaQueryWrapper<UserShoppingCart>()
+            .eq(UserShoppingCart::getUserId, userId).eq(UserShoppingCart::getSelected, true));
+    }
+
+    /**
+     * 合并一批重复的购物车记录：保留最早的未删除记录并累加数量，其余记录物理删除
+     *
+     * @param batchSize
+     * @return
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int compactDuplicateCarts(Integer batchSize) {
+        List<UserShoppingCart> keepList = baseMapper.selectDuplicateGroups(batchSize);
+        for (UserShoppingCart keep : keepList) {
+            // 全部已删除的分组只保留一条已删除记录，updateById 带逻辑删除条件，不会修改
+            baseMapper.updateById(keep);
+            baseMapper.deleteDuplicates(keep.getId());
+        }
+        return keepList.size();
+    }
+
+    /**
+     * 修改 Redis 购物车中的单品，只修改传入的字段
+     *
+     * @param query
+     * @return
+     */
+    private CartGoodsVO editCachedCart(EditCartQuery query) {
+        Integer id;
+        try {
+            id = Integer.valueOf(query.getId());
+        } catch (NumberFormatException e) {
+            throw new ServerException("购物车信息不存在");
+        }
+        List<UserShoppingCart> items = cartCache.getItems(query.getUserId(), List.of(id));
+        if (items.isEmpty()) {
+            throw new ServerException("购物车信息不存在");
+        }
+        UserShoppingCart userShoppingCart = items.get(0);
+        Goods goods = goodsMapper.selectById(userShoppingCart.getGoodsId());
+        if (query.getCount() != null && query.getCount() > goods.getInventory()) {
+            throw new ServerException(goods.getName() + "库存数量不足");
+        }
+        Boolean oldSelected = userShoppingCart.getSelected();
+        Integer oldCount = userShoppingCart.getCount();
+        if (query.getCount() != null) {
+            userShoppingCart.setCount(query.getCount());
+        }
+        if (query.getSelected() != null) {
+            userShoppingCart.setSelected(query.getSelected());
+        }
+        long revision = cartSummaryCache.begin(query.getUserId());
+        cartCache.updateItems(query.getUserId(), List.of(userShoppingCart));
+        applySummaryDelta(query.getUserId(), revision, goods, oldSelected, oldCount, userShoppingCart.getSelected(),
+            userShoppingCart.getCount());
+        return buildCartGoodsVO(userShoppingCart, goods);
+    }
+
+    /**
+     * 按单品修改前后的选中状态和数量累加购物车汇总的变化量
+     */
+    private void applySummaryDelta(Integer userId, long revision, Goods goods, Boolean oldSelected, Integer oldCount,
+        Boolean newSelected, Integer newCount) {
+        long oldLineCount = Boolean.TRUE.equals(oldSelected) ? oldCount : 0;
+        long newLineCount = Boolean.TRUE.equals(newSelected) ? newCount : 0;
+        long freight = CartSummaryCache.toCent(goods.getFreight());
+        long freightDelta =
+            (Boolean.TRUE.equals(newSelected) ? freight : 0) - (Boolean.TRUE.equals(oldSelected) ? freight : 0);
+        cartSummaryCache.apply(userId, revision, newLineCount - oldLineCount,
+            CartSummaryCache.toCent(goods.getPrice()) * (newLineCount - oldLineCount), freightDelta);
+    }
+
+    /**
+     * 重新计算购物车汇总
+     *
+     * @param userId
+     * @return
+     */
+    private CartSummaryVO computeSummary(Integer userId) {
+        if (!cartCache.isEnabled()) {
+            CartSummaryVO summary = baseMapper.getCartSummary(userId);
+            summary.setTotalPayPrice(summary.getTotalPrice() + summary.getPostFee());
+            return summary;
+        }
+        // Redis 购物车中可能有尚未回写的修改，以 Redis 为准
+        List<UserShoppingCart> cartList = getSelectedCartList(userId);
+        Map<String, Goods> goodsMap = cartList.isEmpty() ? Map.of()
+            : goodsMapper.selectMapByIds(cartList.stream().map(UserShoppingCart::getGoodsId).collect(Collectors.toList()));
+        long count = 0;
+        long price = 0;
+        long freight = 0;
+        for (UserShoppingCart userShoppingCart : cartList) {
+            Goods goods = goodsMap.get(userShoppingCart.getGoodsId());
+            if (goods != null) {
+                count += userShoppingCart.getCount();
+                price += CartSummaryCache.toCent(goods.getPrice()) * userShoppingCart.getCount();
+                freight += CartSummaryCache.toCent(goods.getFreight());
+            }
+        }
+        CartSummaryVO summary = new CartSummaryVO();
+        summary.setGoodsCount((int) count);
+        summary.setTotalPrice(price / 100.0);
+        summary.setPostFee(freight / 100.0);
+        summary.setTotalPayPrice((price + freight) / 100.0);
+        return summary;
+    }
+
+    /**
+     * 组装购物车列表，商品信息一次查询
+     *
+     * @param cartList
+     * @return
+     */
+    private List<CartGoodsVO> buildCartGoodsList(List<UserShoppingCart> cartList) {
+        if (cartList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Goods> goodsMap = goodsMapper
+            .selectMapByIds(cartList.stream().map(UserShoppingCart::getGoodsId).collect(Collectors.toList()));
+        List<CartGoodsVO> list = new ArrayList<>(cartList.size());
+        for (UserShoppingCart userShoppingCart : cartList) {
+            list.add(buildCartGoodsVO(userShoppingCart, goodsMap.get(userShoppingCart.getGoodsId())));
+        }
+        return list;
+    }
+
+    private CartGoodsVO buildCartGoodsVO(UserShoppingCart userShoppingCart, Goods goods) {
+        CartGoodsVO goodsVO = new CartGoodsVO();
+        goodsVO.setId(userShoppingCart.getId());
+        goodsVO.setGoodsId(userShoppingCart.getGoodsId());
+        goodsVO.setAttrsText(userShoppingCart.getAttrsText());
+        goodsVO.setPrice(userShoppingCart.getPrice());
+        goodsVO.setSelected(userShoppingCart.getSelected());
+        goodsVO.setCount(userShoppingCart.getCount());
+        if (goods == null) {
+            goodsVO.setIsEffective(false);
+            return goodsVO;
+        }
+        goodsVO.setName(goods.getName());
+        goodsVO.setNowPrice(goods.getPrice());
+        goodsVO.setStock(goods.getInventory());
+        goodsVO.setPicture(goods.getCover());
+        goodsVO.setDiscount(goods.getDiscount());
+        return goodsVO;
     }
 }
@@ -0,0 +1,16 @@
+package com.soft2242.shop.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class CartSummaryVO {
+    @Schema(description = "选中商品件数")
+    private Integer goodsCount;
+    @Schema(description = "选中商品金额")
+    private Double totalPrice;
+    @Schema(description = "邮费")
+    private Double postFee;
+    @Schema(description = "应付总计")
+    private Double totalPayPrice;
+}
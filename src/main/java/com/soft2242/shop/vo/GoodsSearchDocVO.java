@@ -0,0 +1,26 @@
+package com.soft2242.shop.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class GoodsSearchDocVO {
+    @Schema(description = "商品id")
+    private String id;
+    @Schema(description = "商品名称")
+    private String name;
+    @Schema(description = "商品描述")
+    private String description;
+    @Schema(description = "商品价格")
+    private Double price;
+    @Schema(description = "分类id")
+    private Integer categoryId;
+    @Schema(description = "上级分类id")
+    private Integer parentCategoryId;
+    @Schema(description = "分类名称")
+    private String categoryName;
+    @Schema(description = "上级分类名称")
+    private String parentCategoryName;
+    @Schema(description = "商品详情属性值(空格分隔)")
+    private String detailText;
+}
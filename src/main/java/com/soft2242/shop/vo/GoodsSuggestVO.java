@@ -0,0 +1,12 @@
+package com.soft2242.shop.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class GoodsSuggestVO {
+    @Schema(description = "联想词")
+    private String text;
+    @Schema(description = "权重(销量)")
+    private Long weight;
+}
@@ -0,0 +1,22 @@
+package com.soft2242.shop.vo;
+
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.entity.Category;
+import com.soft2242.shop.entity.IndexCarousel;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "首页聚合数据")
+public class HomeFeedVO {
+    @Schema(description = "轮播图")
+    private List<IndexCarousel> banners;
+    @Schema(description = "首页分类")
+    private List<Category> categories;
+    @Schema(description = "热门推荐")
+    private List<IndexRecommendVO> hotRecommends;
+    @Schema(description = "猜你喜欢第一页")
+    private PageResult<RecommendGoodsVO> guessLike;
+}
@@ -13,4 +13,6 @@ public class SubmitOrderVO {
     private List<UserOrderGoodsVO> goods;
     @Schema(description = "综述信息")
     private OrderInfoVO summary;
+    @Schema(description = "提交令牌，提交订单时原样带回，防止重复提交")
+    private String submitToken;
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.soft2242.shop.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class TabGoodsCountVO {
+    @Schema(description = "推荐tab_id")
+    private Integer tabId;
+    @Schema(description = "商品总数")
+    private Long total;
+}
@@ -27,4 +27,6 @@ public class UserOrderVO {
     @Schema(description = "支付渠道，1-支付宝，2-微信")
     @NotNull(message = "支付方渠道不能为空")
     private Integer payChannel;
+    @Schema(description = "提交令牌，同一令牌重复提交返回同一订单")
+    private String submitToken;
 }
\ No newline at end of file
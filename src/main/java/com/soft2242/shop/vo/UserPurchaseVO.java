@@ -0,0 +1,12 @@
+package com.soft2242.shop.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+public class UserPurchaseVO {
+    @Schema(description = "用户id")
+    private Integer userId;
+    @Schema(description = "商品id")
+    private String goodsId;
+}
@@ -0,0 +1,7 @@
+-- Redis 预扣库存回写记录：每批变化量回写时在同一事务中插入一行，批次id已存在说明该批已经回写过，
+-- 回写提交后删除 Redis 中的批次失败时，下一轮据此跳过，避免重复扣减
+create table if not exists t_stock_flush_log
+(
+    batch_id    char(32) not null primary key,
+    create_time datetime not null
+);
@@ -0,0 +1,8 @@
+-- 订单列表游标分页使用的联合索引
+-- 按状态筛选：where user_id = ? and status = ? and (create_time, id) < (?, ?) order by create_time desc, id desc
+alter table t_user_order
+    add index idx_user_status_time (user_id, status, create_time, id);
+
+-- 查询全部订单：where user_id = ? and (create_time, id) < (?, ?) order by create_time desc, id desc
+alter table t_user_order
+    add index idx_user_time (user_id, create_time, id);
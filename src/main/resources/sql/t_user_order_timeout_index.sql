@@ -0,0 +1,4 @@
+-- 超时未支付订单兜底扫描使用的索引
+-- where status = ? and delete_flag = 0 and create_time < ? order by create_time limit ?
+alter table t_user_order
+    add index idx_status_time (status, create_time);
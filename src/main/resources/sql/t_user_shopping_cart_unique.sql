@@ -0,0 +1,13 @@
+-- 购物车按 (用户, 商品, 属性) 去重，加入购物车改为 insert ... on duplicate key update
+-- 执行顺序：
+--   1. 执行第一段，增加属性摘要列
+--   2. 以 shop.cart.compact-on-startup=true 启动一次应用，合并已有的重复购物车记录
+--   3. 执行第二段，增加唯一索引
+
+-- 1. 属性文本较长，唯一索引建在其 md5 摘要上
+alter table t_user_shopping_cart
+    add column attrs_hash char(32) generated always as (md5(coalesce(attrs_text, ''))) stored after attrs_text;
+
+-- 2. 合并重复记录后再执行
+alter table t_user_shopping_cart
+    add unique key uk_user_goods_attrs (user_id, goods_id, attrs_hash);
@@ -0,0 +1,49 @@
+package com.soft2242.shop;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * 集成测试基类
+ * <p>
+ * 所有测试类共用一组 MySQL、Redis 容器(只启动一次，Spring 上下文缓存因此可以复用)，
+ * 表结构由 schema.sql 和 sql 目录下的变更脚本初始化；没有 Docker 的环境跳过。
+ * 超时订单兜底扫描会取消其他测试插入的历史待付款订单，测试中不定时执行
+ */
+@SpringBootTest(properties = {
+    "spring.sql.init.mode=always",
+    "spring.sql.init.schema-locations=classpath:schema.sql,classpath:sql/t_user_shopping_cart_unique.sql,"
+        + "classpath:sql/t_user_order_cursor_index.sql,classpath:sql/t_stock_flush_log.sql,"
+        + "classpath:sql/t_user_order_timeout_index.sql",
+    "mybatis-plus.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl",
+    "shop.order.sweep-interval=3600000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class IntegrationTestSupport {
+
+    protected static final String REDIS_PASSWORD = "test";
+
+    protected static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0").withDatabaseName("shop");
+
+    protected static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine")
+        .withCommand("redis-server", "--requirepass", REDIS_PASSWORD).withExposedPorts(6379);
+
+    static {
+        MYSQL.start();
+        REDIS.start();
+    }
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.data.redis.host", REDIS::getHost);
+        registry.add("spring.data.redis.port", () -> REDIS.getMappedPort(6379));
+        registry.add("spring.data.redis.password", () -> REDIS_PASSWORD);
+    }
+}
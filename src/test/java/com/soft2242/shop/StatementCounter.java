@@ -0,0 +1,103 @@
+package com.soft2242.shop;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 统计当前线程执行的 SQL 语句和绑定的参数，用于断言某个操作发出的语句数量，或对实际执行的语句做 EXPLAIN；
+ * 定时任务等其他线程的语句不计入
+ */
+@Component
+@Intercepts({
+    @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+    @Signature(type = StatementHandler.class, method = "parameterize", args = {Statement.class})
+})
+public class StatementCounter implements Interceptor {
+
+    private static final ThreadLocal<Recording> RECORDING = new ThreadLocal<>();
+
+    /**
+     * 执行操作并返回期间当前线程发出的 SQL
+     *
+     * @param action 操作
+     * @return SQL 列表
+     */
+    public static List<String> capture(Runnable action) {
+        return record(() -> {
+            action.run();
+            return null;
+        }).statements();
+    }
+
+    /**
+     * 执行操作并返回结果和期间当前线程发出的 SQL
+     *
+     * @param action 操作
+     * @return 结果、SQL 列表和每条 SQL 按占位符顺序绑定的参数
+     */
+    public static <T> Recorded<T> record(Supplier<T> action) {
+        Recording recording = new Recording(new ArrayList<>(), new ArrayList<>());
+        RECORDING.set(recording);
+        try {
+            T result = action.get();
+            return new Recorded<>(result, recording.statements(), recording.parameters());
+        } finally {
+            RECORDING.remove();
+        }
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Recording recording = RECORDING.get();
+        if (recording == null) {
+            return invocation.proceed();
+        }
+        if ("prepare".equals(invocation.getMethod().getName())) {
+            recording.statements().add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+            recording.parameters().add(new ArrayList<>());
+        } else if (invocation.getArgs()[0] instanceof PreparedStatement) {
+            // 参数由 ParameterHandler 通过 setXxx(下标, 值) 写入，替换为记录参数的代理
+            invocation.getArgs()[0] = recordParameters((PreparedStatement) invocation.getArgs()[0],
+                recording.parameters().get(recording.parameters().size() - 1));
+        }
+        return invocation.proceed();
+    }
+
+    private static PreparedStatement recordParameters(PreparedStatement statement, List<Object> parameters) {
+        return (PreparedStatement) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                if (method.getName().startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer) {
+                    int index = (Integer) args[0];
+                    while (parameters.size() < index) {
+                        parameters.add(null);
+                    }
+                    parameters.set(index - 1, "setNull".equals(method.getName()) ? null : args[1]);
+                }
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private record Recording(List<String> statements, List<List<Object>> parameters) {
+    }
+
+    public record Recorded<T>(T result, List<String> statements, List<List<Object>> parameters) {
+    }
+}
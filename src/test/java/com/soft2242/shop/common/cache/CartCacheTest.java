@@ -0,0 +1,169 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.entity.UserShoppingCart;
+import com.soft2242.shop.mapper.UserShoppingCartMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CartCacheTest extends IntegrationTestSupport {
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private UserShoppingCartMapper userShoppingCartMapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @BeforeEach
+    void enable() {
+        ReflectionTestUtils.setField(cartCache, "enabled", true);
+    }
+
+    @AfterEach
+    void disable() {
+        ReflectionTestUtils.setField(cartCache, "enabled", false);
+    }
+
+    /**
+     * 上一轮回写失败留下处理中的变更时，本轮先回写它，再回写期间新记录的变更
+     */
+    @Test
+    void flushAlsoWritesPendingEditsBehindALeftoverBatch() {
+        int userId = 200001;
+        UserShoppingCart first = insertCart(userId, "1");
+        UserShoppingCart second = insertCart(userId, "2");
+        cartCache.getItems(userId);
+
+        first.setCount(3);
+        cartCache.updateItems(userId, List.of(first));
+        // 模拟上一轮改名后回写失败
+        redisTemplate.rename(CART_PENDING + userId, CART_PENDING + userId + PROCESSING_SUFFIX);
+        second.setCount(7);
+        cartCache.updateItems(userId, List.of(second));
+
+        flushUntilClean(userId);
+
+        assertEquals(3, userShoppingCartMapper.selectById(first.getId()).getCount());
+        assertEquals(7, userShoppingCartMapper.selectById(second.getId()).getCount());
+    }
+
+    /**
+     * 并发加载时，后完成的加载不会用数据库中的旧数据覆盖已写入 Redis 的修改
+     */
+    @Test
+    void concurrentLoadDoesNotOverwriteNewerEdits() {
+        int userId = 200002;
+        UserShoppingCart item = insertCart(userId, "1");
+        List<UserShoppingCart> stale = List.of(userShoppingCartMapper.selectById(item.getId()));
+        cartCache.getItems(userId);
+
+        item.setCount(5);
+        cartCache.updateItems(userId, List.of(item));
+        ReflectionTestUtils.invokeMethod(cartCache, "load", CART_ITEMS + userId, stale);
+
+        assertEquals(5, cartCache.getItems(userId).get(0).getCount());
+        flushUntilClean(userId);
+        assertEquals(5, userShoppingCartMapper.selectById(item.getId()).getCount());
+    }
+
+    /**
+     * 并发累加同一商品的数量不会互相覆盖，累加结果会回写数据库
+     */
+    @Test
+    void concurrentAddCountIsNotLost() throws Exception {
+        int userId = 700601;
+        UserShoppingCart item = insertCart(userId, "1");
+        cartCache.getItems(userId);
+
+        int threads = 8;
+        int addsPerThread = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < addsPerThread; i++) {
+                    cartCache.addCount(userId, item.getId(), 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        int expected = 1 + threads * addsPerThread;
+        assertEquals(expected, cartCache.getItems(userId).get(0).getCount());
+        flushUntilClean(userId);
+        assertEquals(expected, userShoppingCartMapper.selectById(item.getId()).getCount());
+    }
+
+    /**
+     * 商品已不在购物车中时不累加，由调用方按新加入处理
+     */
+    @Test
+    void addCountSkipsRemovedItem() {
+        int userId = 700602;
+        UserShoppingCart item = insertCart(userId, "1");
+        cartCache.getItems(userId);
+        cartCache.removeItems(userId, List.of(item));
+
+        assertNull(cartCache.addCount(userId, item.getId(), 1));
+        flushUntilClean(userId);
+    }
+
+    /**
+     * 回写锁可能正被定时任务持有，重试直到该用户没有待回写的变更
+     */
+    private void flushUntilClean(int userId) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Boolean.TRUE.equals(redisTemplate.hasKey(CART_PENDING + userId))
+            || Boolean.TRUE.equals(redisTemplate.hasKey(CART_PENDING + userId + PROCESSING_SUFFIX))) {
+            assertFalse(System.currentTimeMillis() > deadline, "购物车变更未回写");
+            cartCache.flush();
+            sleep();
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private UserShoppingCart insertCart(int userId, String goodsId) {
+        UserShoppingCart cart = new UserShoppingCart();
+        cart.setUserId(userId);
+        cart.setGoodsId(goodsId);
+        cart.setPrice(10.0);
+        cart.setCount(1);
+        cart.setAttrsText("默认");
+        cart.setSelected(false);
+        userShoppingCartMapper.insert(cart);
+        return cart;
+    }
+}
@@ -0,0 +1,98 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.vo.CartSummaryVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.CART_SUMMARY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CartSummaryCacheTest extends IntegrationTestSupport {
+
+    @Autowired
+    private CartSummaryCache cartSummaryCache;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 汇总在修改开始前写入时，修改完成后累加变化量，不再重新计算
+     */
+    @Test
+    void applyAddsDeltaToSummaryStoredBeforeTheEdit() {
+        int userId = 400001;
+        AtomicInteger loads = new AtomicInteger();
+        cartSummaryCache.get(userId, id -> {
+            loads.incrementAndGet();
+            return summary(2, 20.0);
+        });
+
+        long revision = cartSummaryCache.begin(userId);
+        cartSummaryCache.apply(userId, revision, 1, 1000, 0);
+
+        CartSummaryVO summary = cartSummaryCache.get(userId, id -> {
+            loads.incrementAndGet();
+            return summary(0, 0.0);
+        });
+        assertEquals(3, summary.getGoodsCount());
+        assertEquals(30.0, summary.getTotalPrice());
+        assertEquals(1, loads.get());
+    }
+
+    /**
+     * 计算期间发生修改时，计算结果不写入缓存，修改的变化量也不会丢失
+     */
+    @Test
+    void summaryComputedDuringAnEditIsNotStored() {
+        int userId = 400002;
+        cartSummaryCache.get(userId, id -> {
+            // 计算期间另一个请求完成了一次修改，汇总尚不存在，变化量被忽略
+            long revision = cartSummaryCache.begin(userId);
+            cartSummaryCache.apply(userId, revision, 1, 1000, 0);
+            return summary(2, 20.0);
+        });
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(CART_SUMMARY + userId)));
+
+        assertEquals(3, cartSummaryCache.get(userId, id -> summary(3, 30.0)).getGoodsCount());
+    }
+
+    /**
+     * 汇总在修改开始之后写入时，无法确定是否已包含本次修改，修改完成后删除汇总
+     */
+    @Test
+    void summaryStoredAfterEditBeganIsDropped() {
+        int userId = 400003;
+        long revision = cartSummaryCache.begin(userId);
+        cartSummaryCache.get(userId, id -> summary(3, 30.0));
+        cartSummaryCache.apply(userId, revision, 1, 1000, 0);
+
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(CART_SUMMARY + userId)));
+    }
+
+    /**
+     * 失效后正在计算的汇总不会写入
+     */
+    @Test
+    void invalidateDuringComputeWins() {
+        int userId = 400004;
+        cartSummaryCache.get(userId, id -> {
+            cartSummaryCache.invalidate(userId);
+            return summary(2, 20.0);
+        });
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(CART_SUMMARY + userId)));
+    }
+
+    private CartSummaryVO summary(int count, double price) {
+        CartSummaryVO summary = new CartSummaryVO();
+        summary.setGoodsCount(count);
+        summary.setTotalPrice(price);
+        summary.setPostFee(0.0);
+        summary.setTotalPayPrice(price);
+        return summary;
+    }
+}
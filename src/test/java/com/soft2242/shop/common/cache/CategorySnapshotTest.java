@@ -0,0 +1,67 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.vo.CategoryChildrenGoodsVO;
+import com.soft2242.shop.vo.CategoryVO;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CategorySnapshotTest {
+
+    /**
+     * 修改构建快照时传入的对象或读取到的分类树，快照内容和版本号都不变
+     */
+    @Test
+    void mutationsDoNotLeakIntoSnapshot() {
+        List<CategoryVO> source = new ArrayList<>(List.of(category("手机", "华为 Mate")));
+        CategorySnapshot snapshot = new CategorySnapshot(source);
+        String version = snapshot.getVersion();
+
+        source.get(0).setName("修改后");
+        source.get(0).getChildren().get(0).getGoods().get(0).setPrice("0");
+        source.add(category("电脑", "笔记本"));
+        List<CategoryVO> read = snapshot.getCategories();
+        read.get(0).setName("修改后");
+        read.get(0).getChildren().get(0).getGoods().get(0).setPrice("0");
+
+        CategoryVO category = snapshot.getCategories().get(0);
+        assertEquals(1, snapshot.getCategories().size());
+        assertEquals("手机", category.getName());
+        assertEquals("99.0", category.getChildren().get(0).getGoods().get(0).getPrice());
+        assertEquals(version, snapshot.getVersion());
+        assertEquals(version, new CategorySnapshot(List.of(category("手机", "华为 Mate"))).getVersion());
+    }
+
+    /**
+     * 内容变化时版本号变化
+     */
+    @Test
+    void versionFollowsContent() {
+        CategorySnapshot a = new CategorySnapshot(List.of(category("手机", "华为 Mate")));
+        CategorySnapshot b = new CategorySnapshot(List.of(category("手机", "小米")));
+        assertNotEquals(a.getVersion(), b.getVersion());
+    }
+
+    private CategoryVO category(String name, String goodsName) {
+        RecommendGoodsVO goods = new RecommendGoodsVO();
+        goods.setId("1");
+        goods.setName(goodsName);
+        goods.setPrice("99.0");
+        CategoryChildrenGoodsVO child = new CategoryChildrenGoodsVO();
+        child.setId(2);
+        child.setName(name + "配件");
+        child.setParentId(1);
+        child.setParentName(name);
+        child.setGoods(new ArrayList<>(List.of(goods)));
+        CategoryVO category = new CategoryVO();
+        category.setId(1);
+        category.setName(name);
+        category.setChildren(new ArrayList<>(List.of(child)));
+        return category;
+    }
+}
@@ -0,0 +1,87 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.GoodsVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_DETAIL;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_INVALIDATE_CHANNEL;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_STOCK_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GoodsDetailCacheTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private GoodsDetailCache goodsDetailCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        goodsDetailCache = new GoodsDetailCache();
+        ReflectionTestUtils.setField(goodsDetailCache, "redisService", mock(RedisService.class));
+        ReflectionTestUtils.setField(goodsDetailCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(goodsDetailCache, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(goodsDetailCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(goodsDetailCache, "localSize", 100L);
+        ReflectionTestUtils.setField(goodsDetailCache, "localExpire", 60L);
+        goodsDetailCache.init();
+    }
+
+    /**
+     * 库存变化只删除商品详情的 Redis 缓存并在 goods:stock 上发布一条消息，不触发 goods:invalidate 的订阅者
+     */
+    @Test
+    void stockEvictUsesStockChannelOnly() {
+        goodsDetailCache.evictStockAfterCommit(List.of("1", "2"));
+
+        verify(stringRedisTemplate).delete(List.of(GOODS_DETAIL + 1, GOODS_DETAIL + 2));
+        verify(stringRedisTemplate).convertAndSend(GOODS_STOCK_CHANNEL, "1,2");
+        verify(stringRedisTemplate, never()).convertAndSend(eq(GOODS_INVALIDATE_CHANNEL), anyString());
+    }
+
+    /**
+     * 一条库存消息清除其中所有商品的本地缓存，无效的id被跳过
+     */
+    @Test
+    void stockMessageInvalidatesEveryListedGoods() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int id : new int[]{1, 2, 3}) {
+            goodsDetailCache.get(id, key -> load(loads));
+        }
+        goodsDetailCache.onMessage(new DefaultMessage(GOODS_STOCK_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            "1,x,2".getBytes(StandardCharsets.UTF_8)), null);
+        for (int id : new int[]{1, 2, 3}) {
+            goodsDetailCache.get(id, key -> load(loads));
+        }
+        assertEquals(5, loads.get());
+    }
+
+    private static GoodsVO load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new GoodsVO();
+    }
+}
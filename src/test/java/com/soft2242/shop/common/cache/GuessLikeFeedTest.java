@@ -0,0 +1,208 @@
+package com.soft2242.shop.common.cache;
+
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_GUESS_LIKE;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_RECOMMEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GuessLikeFeedTest {
+
+    private static final String REBUILD_LOCK = "goods:guess:lock";
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ListOperations<String, String> listOperations;
+
+    private ValueOperations<String, String> valueOperations;
+
+    private RedisService redisService;
+
+    private GoodsMapper goodsMapper;
+
+    private GuessLikeFeed guessLikeFeed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        listOperations = mock(ListOperations.class);
+        valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForList()).thenReturn(listOperations);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        redisService = mock(RedisService.class);
+        goodsMapper = mock(GoodsMapper.class);
+        guessLikeFeed = new GuessLikeFeed();
+        ReflectionTestUtils.setField(guessLikeFeed, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(guessLikeFeed, "redisService", redisService);
+        ReflectionTestUtils.setField(guessLikeFeed, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(guessLikeFeed, "feedSize", 1000);
+        ReflectionTestUtils.setField(guessLikeFeed, "gravity", 1.5);
+        ReflectionTestUtils.setField(guessLikeFeed, "goodsExpire", 10L);
+    }
+
+    /**
+     * 非法分页参数在访问 Redis 之前被拒绝
+     */
+    @Test
+    void rejectsInvalidPaging() {
+        assertThrows(ServerException.class, () -> guessLikeFeed.getPage(0, 10));
+        assertThrows(ServerException.class, () -> guessLikeFeed.getPage(1, 0));
+        assertThrows(ServerException.class, () -> guessLikeFeed.getPage(1, 1, -1));
+    }
+
+    /**
+     * 按页码截取列表的对应下标，总数取列表长度；超出末页时不再读取列表
+     */
+    @Test
+    void pageIsSlicedFromFeedList() {
+        when(listOperations.size(GOODS_GUESS_LIKE)).thenReturn(5L);
+        when(listOperations.range(GOODS_GUESS_LIKE, 2, 3)).thenReturn(List.of("3", "4"));
+        when(listOperations.range(GOODS_GUESS_LIKE, 4, 5)).thenReturn(List.of("5"));
+        cached("3", "4");
+        cached("5");
+
+        PageResult<RecommendGoodsVO> second = guessLikeFeed.getPage(2, 2);
+        assertEquals(List.of("3", "4"), ids(second));
+        assertEquals(5, second.getCounts());
+        assertEquals(3, second.getPages());
+        assertEquals(List.of("5"), ids(guessLikeFeed.getPage(3, 2)));
+
+        PageResult<RecommendGoodsVO> beyond = guessLikeFeed.getPage(4, 2);
+        assertEquals(List.of(), ids(beyond));
+        assertEquals(5, beyond.getCounts());
+        verify(listOperations, never()).range(eq(GOODS_GUESS_LIKE), eq(6L), anyLong());
+        verifyNoInteractions(goodsMapper);
+    }
+
+    /**
+     * 推荐流为空时直接返回空页，请求中不计算推荐流也不加锁
+     */
+    @Test
+    void emptyFeedIsNotRebuiltInRequest() {
+        when(listOperations.size(GOODS_GUESS_LIKE)).thenReturn(0L);
+
+        PageResult<RecommendGoodsVO> page = guessLikeFeed.getPage(null, 1, 10);
+
+        assertEquals(0, page.getCounts());
+        assertEquals(0, page.getPages());
+        assertEquals(List.of(), page.getList());
+        verifyNoInteractions(goodsMapper, valueOperations);
+    }
+
+    /**
+     * 缓存未命中的商品一次查询数据库并回填，已下架的商品跳过，返回顺序与id顺序一致
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void missesAreLoadedOnceAndBackfilled() {
+        when(redisService.multiGet(List.of(GOODS_RECOMMEND + 1, GOODS_RECOMMEND + 2, GOODS_RECOMMEND + 3),
+            RecommendGoodsVO.class)).thenReturn(Arrays.asList(null, recommendGoods("2"), null));
+        when(goodsMapper.selectMapByIds(List.of("1", "3"))).thenReturn(Map.of("1", goods("1")));
+
+        List<RecommendGoodsVO> list = guessLikeFeed.getGoods(List.of("1", "2", "3"));
+
+        assertEquals(List.of("1", "2"), list.stream().map(RecommendGoodsVO::getId).collect(Collectors.toList()));
+        ArgumentCaptor<Map<String, Object>> values = ArgumentCaptor.forClass(Map.class);
+        verify(redisService).multiSet(values.capture(), eq(10L));
+        assertEquals(List.of(GOODS_RECOMMEND + 1), List.copyOf(values.getValue().keySet()));
+    }
+
+    /**
+     * 新列表写入临时 key 后 RENAME 覆盖正式 key，锁按持有者释放
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildSwapsTempListAndReleasesOwnLock() {
+        when(valueOperations.setIfAbsent(eq(REBUILD_LOCK), anyString(), any(Duration.class))).thenReturn(true);
+        when(goodsMapper.selectGuessLikeIds(1.5, 1000)).thenReturn(List.of("3", "1", "2"));
+
+        guessLikeFeed.rebuild();
+
+        ArgumentCaptor<String> tempKey = ArgumentCaptor.forClass(String.class);
+        verify(listOperations).rightPushAll(tempKey.capture(), eq(List.of("3", "1", "2")));
+        assertTrue(tempKey.getValue().startsWith(GOODS_GUESS_LIKE + ":"));
+        assertNotEquals(REBUILD_LOCK, tempKey.getValue());
+        verify(stringRedisTemplate).rename(tempKey.getValue(), GOODS_GUESS_LIKE);
+
+        ArgumentCaptor<String> owner = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).setIfAbsent(eq(REBUILD_LOCK), owner.capture(), any(Duration.class));
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of(REBUILD_LOCK)), eq(owner.getValue()));
+        verify(stringRedisTemplate, never()).delete(REBUILD_LOCK);
+    }
+
+    /**
+     * 其他节点持有锁时跳过计算，也不释放别人的锁
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildSkipsWhenLockIsHeld() {
+        when(valueOperations.setIfAbsent(eq(REBUILD_LOCK), anyString(), any(Duration.class))).thenReturn(false);
+
+        guessLikeFeed.rebuild();
+
+        verify(goodsMapper, never()).selectGuessLikeIds(anyDouble(), anyInt());
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), any(List.class), any());
+        verify(stringRedisTemplate, never()).rename(anyString(), anyString());
+    }
+
+    private void cached(String... ids) {
+        List<String> keys = Arrays.stream(ids).map(id -> GOODS_RECOMMEND + id).collect(Collectors.toList());
+        List<RecommendGoodsVO> values = Arrays.stream(ids).map(GuessLikeFeedTest::recommendGoods)
+            .collect(Collectors.toList());
+        when(redisService.multiGet(keys, RecommendGoodsVO.class)).thenReturn(values);
+    }
+
+    private static List<String> ids(PageResult<RecommendGoodsVO> page) {
+        return page.getList().stream().map(RecommendGoodsVO::getId).collect(Collectors.toList());
+    }
+
+    private static RecommendGoodsVO recommendGoods(String id) {
+        RecommendGoodsVO goods = new RecommendGoodsVO();
+        goods.setId(id);
+        goods.setName("推荐商品" + id);
+        return goods;
+    }
+
+    private static Goods goods(String id) {
+        Goods goods = new Goods();
+        goods.setId(id);
+        goods.setName("推荐商品" + id);
+        goods.setPrice(10.0);
+        goods.setSalesCount(0);
+        return goods;
+    }
+}
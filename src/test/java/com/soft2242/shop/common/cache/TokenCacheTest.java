@@ -0,0 +1,94 @@
+package com.soft2242.shop.common.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.TOKEN_REVOKE_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TokenCacheTest {
+
+    private TokenCache tokenCache;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache = new TokenCache();
+        ReflectionTestUtils.setField(tokenCache, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(tokenCache, "localSize", 1000L);
+        ReflectionTestUtils.setField(tokenCache, "localExpire", 300L);
+        tokenCache.init();
+    }
+
+    /**
+     * 失效消息只清除该用户的 token，其他用户不受影响
+     */
+    @Test
+    void revokeRemovesOnlyThatUsersTokens() {
+        long expireAt = System.currentTimeMillis() + 60_000;
+        tokenCache.put("a1", 1, expireAt, tokenCache.generation(1));
+        tokenCache.put("a2", 1, expireAt, tokenCache.generation(1));
+        tokenCache.put("b1", 2, expireAt, tokenCache.generation(2));
+
+        tokenCache.onMessage(message("1"), null);
+
+        assertNull(tokenCache.getUserId("a1"));
+        assertNull(tokenCache.getUserId("a2"));
+        assertEquals(2, tokenCache.getUserId("b1"));
+    }
+
+    /**
+     * 失效后重新登录的 token 可以再次缓存和失效；同一 token 重复写入不会丢失索引
+     */
+    @Test
+    void tokensCachedAfterRevokeAreIndexedAgain() {
+        long expireAt = System.currentTimeMillis() + 60_000;
+        tokenCache.put("a1", 1, expireAt, tokenCache.generation(1));
+        tokenCache.onMessage(message("1"), null);
+        tokenCache.put("a3", 1, expireAt, tokenCache.generation(1));
+        tokenCache.put("a3", 1, expireAt, tokenCache.generation(1));
+        assertEquals(1, tokenCache.getUserId("a3"));
+
+        tokenCache.onMessage(message("1"), null);
+        assertNull(tokenCache.getUserId("a3"));
+    }
+
+    /**
+     * 读取代数之后收到失效消息，校验结果不再写入缓存；其他用户不受影响
+     */
+    @Test
+    void putAfterRevokeIsRefused() {
+        long expireAt = System.currentTimeMillis() + 60_000;
+        long generation = tokenCache.generation(1);
+        long otherGeneration = tokenCache.generation(2);
+        tokenCache.onMessage(message("1"), null);
+
+        assertFalse(tokenCache.put("a1", 1, expireAt, generation));
+        assertNull(tokenCache.getUserId("a1"));
+        assertTrue(tokenCache.put("b1", 2, expireAt, otherGeneration));
+        assertEquals(2, tokenCache.getUserId("b1"));
+    }
+
+    /**
+     * 无效的消息被忽略
+     */
+    @Test
+    void malformedMessageIsIgnored() {
+        tokenCache.put("a1", 1, System.currentTimeMillis() + 60_000, tokenCache.generation(1));
+        tokenCache.onMessage(message("abc"), null);
+        assertEquals(1, tokenCache.getUserId("a1"));
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(TOKEN_REVOKE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            body.getBytes(StandardCharsets.UTF_8));
+    }
+}
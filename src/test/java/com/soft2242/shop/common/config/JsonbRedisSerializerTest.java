@@ -0,0 +1,121 @@
+package com.soft2242.shop.common.config;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.soft2242.shop.entity.GoodsDetail;
+import com.soft2242.shop.entity.GoodsSpecification;
+import com.soft2242.shop.entity.GoodsSpecificationDetail;
+import com.soft2242.shop.entity.UserShoppingCart;
+import com.soft2242.shop.vo.GoodsVO;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 反序列化时类型过滤器拒绝的类型会得到 null，缓存因此永远不命中；这里覆盖实际写入 Redis 的类型
+ */
+class JsonbRedisSerializerTest {
+
+    private final JsonbRedisSerializer serializer = new JsonbRedisSerializer();
+
+    @Test
+    void goodsDetailRoundTrip() {
+        GoodsVO goods = new GoodsVO();
+        goods.setId("1");
+        goods.setName("商品");
+        goods.setPrice(9.9);
+        goods.setInventory(10);
+        goods.setMainPictures(List.of("a.jpg", "b.jpg"));
+
+        GoodsSpecification spec = new GoodsSpecification();
+        spec.setId(2);
+        spec.setGoodsId("1");
+        spec.setName("颜色");
+        spec.setValue(List.of(JSONObject.of("name", "红色")));
+        spec.setCreateTime(LocalDateTime.of(2023, 11, 7, 10, 0));
+        goods.setSpecs(List.of(spec));
+
+        GoodsSpecificationDetail sku = new GoodsSpecificationDetail();
+        sku.setId(3);
+        sku.setPrice(9.9);
+        sku.setSpecs(List.of(JSONObject.of("name", "颜色", "valueName", "红色")));
+        goods.setSkus(List.of(sku));
+
+        GoodsDetail property = new GoodsDetail();
+        property.setName("产地");
+        property.setValue("中国");
+        goods.setProperties(List.of(property));
+        goods.setSimilarProducts(List.of(recommendGoods("4")));
+
+        GoodsVO copy = assertInstanceOf(GoodsVO.class, roundTrip(goods));
+        assertEquals("商品", copy.getName());
+        assertEquals(9.9, copy.getPrice());
+        assertEquals(List.of("a.jpg", "b.jpg"), copy.getMainPictures());
+        assertEquals("颜色", copy.getSpecs().get(0).getName());
+        assertEquals("红色", copy.getSpecs().get(0).getValue().get(0).getString("name"));
+        assertEquals(LocalDateTime.of(2023, 11, 7, 10, 0), copy.getSpecs().get(0).getCreateTime());
+        assertEquals("红色", copy.getSkus().get(0).getSpecs().get(0).getString("valueName"));
+        assertEquals("中国", copy.getProperties().get(0).getValue());
+        assertEquals(recommendGoods("4"), copy.getSimilarProducts().get(0));
+    }
+
+    @Test
+    void recommendGoodsRoundTrip() {
+        RecommendGoodsVO goods = recommendGoods("5");
+        assertEquals(goods, roundTrip(goods));
+        assertEquals(List.of(goods), roundTrip(List.of(goods)));
+    }
+
+    @Test
+    void cartItemRoundTrip() {
+        UserShoppingCart cart = new UserShoppingCart();
+        cart.setId(6);
+        cart.setUserId(700301);
+        cart.setGoodsId("1");
+        cart.setPrice(9.9);
+        cart.setCount(2);
+        cart.setAttrsText("红色");
+        cart.setSelected(true);
+        cart.setDeleteFlag((byte) 0);
+        cart.setCreateTime(LocalDateTime.of(2023, 11, 7, 10, 0));
+
+        UserShoppingCart copy = assertInstanceOf(UserShoppingCart.class, roundTrip(cart));
+        assertEquals(6, copy.getId());
+        assertEquals(700301, copy.getUserId());
+        assertEquals("1", copy.getGoodsId());
+        assertEquals(2, copy.getCount());
+        assertEquals(true, copy.getSelected());
+        assertEquals((byte) 0, copy.getDeleteFlag());
+        assertEquals(LocalDateTime.of(2023, 11, 7, 10, 0), copy.getCreateTime());
+    }
+
+    /**
+     * 锁、脏用户集合等直接写入的简单值
+     */
+    @Test
+    void simpleValuesRoundTrip() {
+        assertEquals(1, roundTrip(1));
+        assertEquals("token", roundTrip("token"));
+        assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    private Object roundTrip(Object value) {
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    private static RecommendGoodsVO recommendGoods(String id) {
+        RecommendGoodsVO goods = new RecommendGoodsVO();
+        goods.setId(id);
+        goods.setName("推荐商品" + id);
+        goods.setDescription("简介");
+        goods.setPrice("19.90");
+        goods.setCover("cover.jpg");
+        goods.setSalesCount("100");
+        return goods;
+    }
+}
@@ -0,0 +1,113 @@
+package com.soft2242.shop.common.interceptor;
+
+import com.soft2242.shop.common.cache.TokenCache;
+import com.soft2242.shop.common.constant.APIConstant;
+import com.soft2242.shop.common.utils.JWTUtils;
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.UserTokenVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.soft2242.shop.common.constant.APIConstant.APP_NAME;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.TOKEN_REVOKE_CHANNEL;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 登录拦截器 preHandle 的耗时：cached 为本地缓存命中，revoked 为每次调用前收到失效消息、需要重新校验并写入缓存。
+ * Redis 用 mock 代替，只比较拦截器和本地缓存本身的开销；失效代数只在未命中时多读两次数组，
+ * 比较修改前后的差异时在两个版本上分别运行本类(只使用 preHandle 和失效消息，两个版本都可以编译)
+ * <p>
+ * 运行方式：在 IDE 中执行 main 方法，或编译测试代码后以测试 classpath 运行本类
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationInterceptorBenchmark {
+
+    private static final int USER_ID = 700201;
+
+    private final AuthorizationInterceptor interceptor = new AuthorizationInterceptor();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private final DefaultMessage revokeMessage = new DefaultMessage(
+        TOKEN_REVOKE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+        String.valueOf(USER_ID).getBytes(StandardCharsets.UTF_8));
+
+    private TokenCache tokenCache;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        tokenCache = new TokenCache();
+        ReflectionTestUtils.setField(tokenCache, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(tokenCache, "localSize", 1000L);
+        ReflectionTestUtils.setField(tokenCache, "localExpire", 300L);
+        tokenCache.init();
+
+        String token = JWTUtils.generateToken(APIConstant.JWT_SECRET, new UserTokenVO(USER_ID).toMap());
+        RedisService redisService = mock(RedisService.class);
+        when(redisService.getValue(APP_NAME + USER_ID, String.class)).thenReturn(token);
+
+        TokenVerifier tokenVerifier = new TokenVerifier();
+        ReflectionTestUtils.setField(tokenVerifier, "redisService", redisService);
+        ReflectionTestUtils.setField(tokenVerifier, "tokenCache", tokenCache);
+        ReflectionTestUtils.setField(interceptor, "tokenVerifier", tokenVerifier);
+
+        request = new MockHttpServletRequest();
+        request.addHeader(APIConstant.AUTHORIZATION, token);
+        interceptor.preHandle(request, response, null);
+    }
+
+    /**
+     * 每次调用前清除该用户已缓存的 token，使 revoked 走完整的校验路径
+     */
+    @State(Scope.Thread)
+    public static class Revoked {
+
+        @Setup(Level.Invocation)
+        public void revoke(AuthorizationInterceptorBenchmark benchmark) {
+            benchmark.tokenCache.onMessage(benchmark.revokeMessage, null);
+        }
+    }
+
+    @Benchmark
+    public boolean cached() throws Exception {
+        return interceptor.preHandle(request, response, null);
+    }
+
+    @Benchmark
+    public boolean revoked(Revoked revoked) throws Exception {
+        return interceptor.preHandle(request, response, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AuthorizationInterceptorBenchmark.class.getSimpleName()).build())
+            .run();
+    }
+}
@@ -0,0 +1,106 @@
+package com.soft2242.shop.common.interceptor;
+
+import com.soft2242.shop.common.cache.TokenCache;
+import com.soft2242.shop.common.constant.APIConstant;
+import com.soft2242.shop.common.utils.JWTUtils;
+import com.soft2242.shop.service.RedisService;
+import com.soft2242.shop.vo.UserTokenVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.soft2242.shop.common.constant.APIConstant.APP_NAME;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.TOKEN_REVOKE_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenVerifierTest {
+
+    private static final int USER_ID = 500001;
+
+    private RedisService redisService;
+
+    private TokenCache tokenCache;
+
+    private TokenVerifier tokenVerifier;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache = new TokenCache();
+        ReflectionTestUtils.setField(tokenCache, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(tokenCache, "localSize", 1000L);
+        ReflectionTestUtils.setField(tokenCache, "localExpire", 300L);
+        tokenCache.init();
+        redisService = mock(RedisService.class);
+
+        tokenVerifier = new TokenVerifier();
+        ReflectionTestUtils.setField(tokenVerifier, "redisService", redisService);
+        ReflectionTestUtils.setField(tokenVerifier, "tokenCache", tokenCache);
+    }
+
+    @Test
+    void currentTokenResolvesUser() {
+        String token = token();
+        when(redisService.getValue(APP_NAME + USER_ID, String.class)).thenReturn(token);
+
+        assertEquals(USER_ID, tokenVerifier.getOptionalUserId(request(token)));
+    }
+
+    /**
+     * 已被新登录替换的 token 签名仍然有效，但不能再识别为该用户
+     */
+    @Test
+    void replacedTokenIsTreatedAsAnonymous() {
+        String token = token();
+        when(redisService.getValue(APP_NAME + USER_ID, String.class)).thenReturn("newer-token");
+
+        assertNull(tokenVerifier.getOptionalUserId(request(token)));
+    }
+
+    /**
+     * 读取 Redis 期间用户重新登录，本次校验的结果不缓存，下一次请求重新比较
+     */
+    @Test
+    void revokeDuringRedisReadIsNotOverwritten() {
+        String token = token();
+        when(redisService.getValue(APP_NAME + USER_ID, String.class)).thenAnswer(invocation -> {
+            tokenCache.onMessage(revokeMessage(), null);
+            return token;
+        }).thenReturn("newer-token");
+
+        assertEquals(USER_ID, tokenVerifier.verify(token));
+        assertNull(tokenCache.getUserId(token));
+        assertNull(tokenVerifier.getOptionalUserId(request(token)));
+        verify(redisService, times(2)).getValue(APP_NAME + USER_ID, String.class);
+    }
+
+    @Test
+    void missingOrForgedTokenIsTreatedAsAnonymous() {
+        assertNull(tokenVerifier.getOptionalUserId(new MockHttpServletRequest()));
+        assertNull(tokenVerifier.getOptionalUserId(request(token() + "x")));
+    }
+
+    private static String token() {
+        return JWTUtils.generateToken(APIConstant.JWT_SECRET, new UserTokenVO(USER_ID).toMap());
+    }
+
+    private static DefaultMessage revokeMessage() {
+        return new DefaultMessage(TOKEN_REVOKE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            String.valueOf(USER_ID).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(APIConstant.AUTHORIZATION, token);
+        return request;
+    }
+}
@@ -0,0 +1,136 @@
+package com.soft2242.shop.common.search;
+
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.query.GoodsSearchQuery;
+import com.soft2242.shop.vo.GoodsSearchDocVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_INVALIDATE_CHANNEL;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品搜索的查询延迟：常见词与少见词求交集、单个常见词全量打分
+ * <p>
+ * 商品名称由固定的词表随机组合，词的出现概率按下标递减，模拟常见词和少见词。
+ * deltaSize 为主索引构建之后变更过的商品数(默认增量上限为 10000)，其中一半是主索引中已有商品的修改，
+ * 一半是新上架的商品，用于比较增量部分对查询延迟的影响。
+ * 运行方式：在 IDE 中执行 main 方法，或编译测试代码后以测试 classpath 运行本类
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoodsSearchIndexBenchmark {
+
+    private static final String[] WORDS = {"手机", "外套", "红色", "男士", "女士", "运动", "休闲", "纯棉", "夏季", "冬季",
+        "蓝牙", "耳机", "充电", "旗舰", "轻薄", "防水", "儿童", "跑步", "户外", "真皮"};
+
+    @Param({"100000", "1000000"})
+    private int goodsCount;
+
+    @Param({"0", "10000"})
+    private int deltaSize;
+
+    private GoodsSearchIndex index;
+
+    private GoodsSearchQuery twoTerms;
+
+    private GoodsSearchQuery rareAndCommon;
+
+    private GoodsSearchQuery singleCommon;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<GoodsSearchDocVO> docs = new ArrayList<>(goodsCount);
+        for (int i = 1; i <= goodsCount; i++) {
+            docs.add(doc(i, random));
+        }
+        GoodsMapper goodsMapper = mock(GoodsMapper.class);
+        when(goodsMapper.selectSearchDoc(anyInt()))
+            .thenAnswer(invocation -> doc(invocation.getArgument(0), random));
+        index = new GoodsSearchIndex();
+        ReflectionTestUtils.setField(index, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(index, "maxWindow", 1000);
+        index.load(docs);
+        for (int i = 0; i < deltaSize; i++) {
+            int goodsId = i % 2 == 0 ? random.nextInt(goodsCount) + 1 : goodsCount + i;
+            index.onMessage(new DefaultMessage(GOODS_INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                String.valueOf(goodsId).getBytes(StandardCharsets.UTF_8)), null);
+        }
+
+        twoTerms = query("手机 外套");
+        rareAndCommon = query("真皮 手机");
+        singleCommon = query("手机");
+    }
+
+    @Benchmark
+    public PageResult<String> twoCommonTerms() {
+        return index.search(twoTerms);
+    }
+
+    @Benchmark
+    public PageResult<String> rareAndCommonTerm() {
+        return index.search(rareAndCommon);
+    }
+
+    @Benchmark
+    public PageResult<String> singleCommonTerm() {
+        return index.search(singleCommon);
+    }
+
+    private static GoodsSearchDocVO doc(int id, Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int w = 0; w < 4; w++) {
+            // 平方使小下标的词更常见
+            double r = random.nextDouble();
+            name.append(WORDS[(int) (r * r * WORDS.length)]).append(' ');
+        }
+        GoodsSearchDocVO doc = new GoodsSearchDocVO();
+        doc.setId(String.valueOf(id));
+        doc.setName(name.toString());
+        doc.setDescription("商品" + id);
+        doc.setPrice((double) random.nextInt(1000));
+        doc.setCategoryId(random.nextInt(20) + 1);
+        doc.setParentCategoryId(random.nextInt(4) + 100);
+        return doc;
+    }
+
+    private static GoodsSearchQuery query(String keyword) {
+        GoodsSearchQuery query = new GoodsSearchQuery();
+        query.setKeyword(keyword);
+        query.setPage(1);
+        query.setPageSize(20);
+        return query;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GoodsSearchIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,177 @@
+package com.soft2242.shop.common.search;
+
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.query.GoodsSearchQuery;
+import com.soft2242.shop.vo.GoodsSearchDocVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_INVALIDATE_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GoodsSearchIndexTest {
+
+    private static final int DOC_COUNT = 2000;
+
+    private GoodsMapper goodsMapper;
+
+    private GoodsSearchIndex index;
+
+    /**
+     * 商品 i 偶数时为红色、否则为蓝色，3 的倍数为外套、否则为长裤；价格为 i 元，分类为 i % 4 + 1，上级分类为 10
+     */
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+        index = new GoodsSearchIndex();
+        ReflectionTestUtils.setField(index, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(index, "maxWindow", 1000);
+        List<GoodsSearchDocVO> docs = new ArrayList<>();
+        for (int i = 1; i <= DOC_COUNT; i++) {
+            docs.add(doc(i, (i % 2 == 0 ? "红色 " : "蓝色 ") + (i % 3 == 0 ? "外套" : "长裤"), null));
+        }
+        index.load(docs);
+    }
+
+    /**
+     * 只有所有查询词都出现的商品命中；得分相同时商品id大的在前，分页按该顺序截取
+     */
+    @Test
+    void intersectsPostingsAndPages() {
+        PageResult<String> first = index.search(query("红色 外套", 1, 100));
+        assertEquals(DOC_COUNT / 6, first.getCounts());
+        assertEquals(4, first.getPages());
+        assertEquals("1998", first.getList().get(0));
+        assertTrue(first.getList().stream().allMatch(id -> Integer.parseInt(id) % 6 == 0));
+
+        PageResult<String> last = index.search(query("红色 外套", 4, 100));
+        assertEquals(DOC_COUNT / 6 - 300, last.getList().size());
+        assertEquals("6", last.getList().get(last.getList().size() - 1));
+    }
+
+    /**
+     * 汉字查询词必须在文本中连续出现
+     */
+    @Test
+    void chineseQueryRequiresAdjacentCharacters() {
+        assertEquals(0, index.search(query("色外", 1, 10)).getCounts());
+        assertEquals(0, index.search(query("红色长裤外套", 1, 10)).getCounts());
+    }
+
+    /**
+     * 名称中的词按双倍词频计算，词频高、文档短的商品得分更高
+     */
+    @Test
+    void ranksByBm25() {
+        index.load(List.of(
+            doc(1, "华为手机", null),
+            doc(2, "手机壳", "适用华为"),
+            doc(3, "华为手机 华为 旗舰", "华为"),
+            doc(4, "苹果手机", null)));
+
+        PageResult<String> result = index.search(query("华为", 1, 10));
+        assertEquals(List.of("3", "1", "2"), result.getList());
+        assertEquals(List.of("1", "3"), index.search(query("华为手机", 1, 10)).getList());
+    }
+
+    @Test
+    void filtersByPriceAndCategory() {
+        GoodsSearchQuery byPrice = query("红色 外套", 1, 100);
+        byPrice.setMinPrice(100.0);
+        byPrice.setMaxPrice(200.0);
+        assertEquals(17, index.search(byPrice).getCounts());
+
+        GoodsSearchQuery byParent = query("红色 外套", 1, 100);
+        byParent.setCategoryId(10);
+        assertEquals(DOC_COUNT / 6, index.search(byParent).getCounts());
+
+        GoodsSearchQuery byCategory = query("红色 外套", 1, 100);
+        byCategory.setCategoryId(1);
+        assertEquals(DOC_COUNT / 12, index.search(byCategory).getCounts());
+    }
+
+    /**
+     * 变更消息把商品放入增量部分：下架的商品不再命中，修改后的商品按新内容命中
+     */
+    @Test
+    void deltaOverridesSegment() {
+        when(goodsMapper.selectSearchDoc(7)).thenReturn(doc(7, "红色 外套", null));
+        index.onMessage(message("6"), null);
+        index.onMessage(message("7"), null);
+
+        List<String> ids = index.search(query("红色 外套", 1, 1000)).getList();
+        assertEquals(DOC_COUNT / 6, ids.size());
+        assertFalse(ids.contains("6"));
+        assertTrue(ids.contains("7"));
+    }
+
+    /**
+     * 增量商品按词建立倒排：再次变更后旧内容的词不再命中，新上架的商品只按自己的词命中
+     */
+    @Test
+    void deltaIsIndexedByTerm() {
+        when(goodsMapper.selectSearchDoc(7)).thenReturn(doc(7, "红色 外套", null), doc(7, "蓝色 长裤", null));
+        when(goodsMapper.selectSearchDoc(DOC_COUNT + 1)).thenReturn(doc(DOC_COUNT + 1, "红色 围巾", null));
+        index.onMessage(message("7"), null);
+        index.onMessage(message("7"), null);
+        index.onMessage(message(String.valueOf(DOC_COUNT + 1)), null);
+
+        assertFalse(index.search(query("红色 外套", 1, 1000)).getList().contains("7"));
+        assertTrue(index.search(query("蓝色 长裤", 1, 1000)).getList().contains("7"));
+        assertEquals(List.of(String.valueOf(DOC_COUNT + 1)), index.search(query("围巾", 1, 10)).getList());
+        assertEquals(DOC_COUNT / 2 + 1, index.search(query("红色", 1, 10)).getCounts());
+    }
+
+    @Test
+    void invalidMessageIsIgnored() {
+        index.onMessage(message("not-a-number"), null);
+        verify(goodsMapper, never()).selectSearchDoc(anyInt());
+    }
+
+    @Test
+    void rejectsInvalidPaging() {
+        assertThrows(ServerException.class, () -> index.search(query("红色", 0, 10)));
+        assertThrows(ServerException.class, () -> index.search(query("红色", 1, 0)));
+    }
+
+    private static GoodsSearchDocVO doc(int id, String name, String description) {
+        GoodsSearchDocVO doc = new GoodsSearchDocVO();
+        doc.setId(String.valueOf(id));
+        doc.setName(name);
+        doc.setDescription(description);
+        doc.setPrice((double) id);
+        doc.setCategoryId(id % 4 + 1);
+        doc.setParentCategoryId(10);
+        return doc;
+    }
+
+    private static GoodsSearchQuery query(String keyword, int page, int pageSize) {
+        GoodsSearchQuery query = new GoodsSearchQuery();
+        query.setKeyword(keyword);
+        query.setPage(page);
+        query.setPageSize(pageSize);
+        return query;
+    }
+
+    private static Message message(String body) {
+        return new DefaultMessage(GOODS_INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,43 @@
+package com.soft2242.shop.common.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NGramTokenizerTest {
+
+    /**
+     * 索引时汉字输出单字和 bigram，字母数字片段整体转为小写
+     */
+    @Test
+    void indexTokensIncludeUnigramsAndBigrams() {
+        List<String> tokens = new ArrayList<>();
+        NGramTokenizer.tokenize("华为Mate60 手机", tokens::add);
+        assertEquals(List.of("华", "华为", "为", "mate60", "手", "手机", "机"), tokens);
+    }
+
+    /**
+     * 查询时汉字只取 bigram，单个汉字取单字，结果去重
+     */
+    @Test
+    void queryTokensUseBigramsAndAreDistinct() {
+        assertEquals(List.of("华为", "为手", "手机"), NGramTokenizer.tokenizeQuery("华为手机"));
+        assertEquals(List.of("鞋"), NGramTokenizer.tokenizeQuery("鞋"));
+        assertEquals(List.of("手机"), NGramTokenizer.tokenizeQuery("手机 手机"));
+    }
+
+    @Test
+    void fullWidthCharactersAreNormalized() {
+        assertEquals(List.of("abc12", "t"), NGramTokenizer.tokenizeQuery("ＡＢＣ１２－Ｔ"));
+    }
+
+    @Test
+    void emptyTextProducesNoTokens() {
+        assertTrue(NGramTokenizer.tokenizeQuery(null).isEmpty());
+        assertTrue(NGramTokenizer.tokenizeQuery(" ,.!").isEmpty());
+    }
+}
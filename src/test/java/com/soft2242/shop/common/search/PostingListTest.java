@@ -0,0 +1,77 @@
+package com.soft2242.shop.common.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingListTest {
+
+    /**
+     * 覆盖 1 到 5 个字节的变长整数，编码后按原值读回
+     */
+    @Test
+    void varIntRoundTrip() {
+        int[] docs = {0, 1, 128, 16_512, 2_113_664, Integer.MAX_VALUE - 1};
+        int[] freqs = {1, 127, 128, 16_384, 2_097_152, Integer.MAX_VALUE};
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int i = 0; i < docs.length; i++) {
+            builder.add(docs[i], freqs[i]);
+        }
+        PostingList postings = builder.build();
+        assertEquals(docs.length, postings.docFreq());
+
+        PostingList.Cursor cursor = postings.cursor();
+        for (int i = 0; i < docs.length; i++) {
+            assertTrue(cursor.next());
+            assertEquals(docs[i], cursor.doc());
+            assertEquals(freqs[i], cursor.freq());
+        }
+        assertFalse(cursor.next());
+    }
+
+    /**
+     * 文档号连续时每个文档只占 2 个字节
+     */
+    @Test
+    void smallGapsTakeOneBytePerValue() {
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int doc = 0; doc < 1000; doc++) {
+            builder.add(doc, 1);
+        }
+        assertEquals(2000, builder.build().sizeInBytes());
+    }
+
+    /**
+     * 跳转到存在的文档、不存在的文档(停在下一个)和超出末尾的文档；目标不大于当前文档时不移动
+     */
+    @Test
+    void advanceStopsAtFirstDocNotLessThanTarget() {
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int doc = 10; doc <= 1000; doc += 10) {
+            builder.add(doc, doc / 10);
+        }
+        PostingList.Cursor cursor = builder.build().cursor();
+
+        assertTrue(cursor.advance(10));
+        assertEquals(10, cursor.doc());
+        assertTrue(cursor.advance(255));
+        assertEquals(260, cursor.doc());
+        assertEquals(26, cursor.freq());
+        assertTrue(cursor.advance(100));
+        assertEquals(260, cursor.doc());
+        assertTrue(cursor.advance(1000));
+        assertEquals(1000, cursor.doc());
+        assertFalse(cursor.advance(1001));
+    }
+
+    @Test
+    void docsMustBeAddedInIncreasingOrder() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(5, 1);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(5, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(3, 1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.soft2242.shop.common.search;
+
+import com.soft2242.shop.vo.GoodsSuggestVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索联想词的查询延迟：匹配大量词的短前缀和只匹配少量词的长前缀
+ * <p>
+ * 运行方式：在 IDE 中执行 main 方法，或编译测试代码后以测试 classpath 运行本类
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestIndexBenchmark {
+
+    @Param({"1000000"})
+    private int wordCount;
+
+    private SuggestIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<GoodsSuggestVO> suggestions = new ArrayList<>(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 2 + random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                char c = (char) ('a' + random.nextInt(26));
+                text.append(random.nextInt(4) == 0 ? Character.toUpperCase(c) : c);
+            }
+            GoodsSuggestVO suggestion = new GoodsSuggestVO();
+            suggestion.setText(text.toString());
+            suggestion.setWeight((long) random.nextInt(100_000));
+            suggestions.add(suggestion);
+        }
+        index = new SuggestIndex();
+        index.load(suggestions);
+    }
+
+    @Benchmark
+    public List<String> shortPrefix() {
+        return index.suggest("A", 10);
+    }
+
+    @Benchmark
+    public List<String> longPrefix() {
+        return index.suggest("abc", 10);
+    }
+
+    @Benchmark
+    public List<String> noMatch() {
+        return index.suggest("zzzzzzz", 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SuggestIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
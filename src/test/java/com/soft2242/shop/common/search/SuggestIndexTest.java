@@ -0,0 +1,107 @@
+package com.soft2242.shop.common.search;
+
+import com.soft2242.shop.vo.GoodsSuggestVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestIndexTest {
+
+    /**
+     * 前缀匹配忽略大小写，同一个词(忽略大小写)合并权重并保留第一次出现的写法，按权重从高到低返回
+     */
+    @Test
+    void foldsCaseAndOrdersByWeight() {
+        SuggestIndex index = new SuggestIndex();
+        index.load(List.of(
+            suggestion("iPhone 15", 100L),
+            suggestion("iphone 15", 50L),
+            suggestion("IPAD", 200L),
+            suggestion("iPhone 14", 120L),
+            suggestion("iPhone 15 Pro", 80L),
+            suggestion("华为", 300L),
+            suggestion("华为手机", 90L),
+            suggestion("  ", 1000L),
+            suggestion(null, 1000L),
+            suggestion("ipod", null)));
+
+        assertEquals(List.of("iPhone 15", "iPhone 14", "iPhone 15 Pro"), index.suggest("IPH", 10));
+        assertEquals(List.of("IPAD", "iPhone 15"), index.suggest("ip", 2));
+        assertEquals(List.of("iPhone 15", "iPhone 15 Pro"), index.suggest("iphone 15", 10));
+        assertEquals(List.of("华为", "华为手机"), index.suggest("华", 10));
+        assertEquals(List.of("ipod"), index.suggest("ipo", 10));
+        assertTrue(index.suggest("x", 10).isEmpty());
+        assertTrue(index.suggest("华为手机壳", 10).isEmpty());
+        assertTrue(index.suggest("", 10).isEmpty());
+        assertTrue(index.suggest(null, 10).isEmpty());
+    }
+
+    @Test
+    void emptyIndexReturnsNothing() {
+        SuggestIndex index = new SuggestIndex();
+        assertTrue(index.suggest("a", 10).isEmpty());
+        index.load(List.of());
+        assertTrue(index.suggest("a", 10).isEmpty());
+    }
+
+    /**
+     * 随机数据下与逐个比较的结果一致：返回的都是前缀匹配的词，不重复，权重序列等于前 K 大的权重
+     */
+    @Test
+    void topKMatchesBruteForce() {
+        Random random = new Random(7);
+        String alphabet = "abcAB";
+        List<GoodsSuggestVO> suggestions = new ArrayList<>();
+        Map<String, Long> weights = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            long weight = random.nextInt(10_000);
+            suggestions.add(suggestion(text.toString(), weight));
+            weights.merge(text.toString().toLowerCase(Locale.ROOT), weight, Long::sum);
+        }
+        SuggestIndex index = new SuggestIndex();
+        index.load(suggestions);
+
+        for (String prefix : List.of("a", "B", "ab", "Ca", "aBc", "bbb", "cccccc")) {
+            for (int size : new int[]{1, 5, 50}) {
+                String folded = prefix.toLowerCase(Locale.ROOT);
+                List<Long> expected = weights.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith(folded))
+                    .map(Map.Entry::getValue)
+                    .sorted((a, b) -> Long.compare(b, a))
+                    .limit(size)
+                    .toList();
+
+                List<String> actual = index.suggest(prefix, size);
+                assertEquals(actual.size(), new HashSet<>(actual).size());
+                List<Long> actualWeights = new ArrayList<>();
+                for (String text : actual) {
+                    String key = text.toLowerCase(Locale.ROOT);
+                    assertTrue(key.startsWith(folded), text);
+                    actualWeights.add(weights.get(key));
+                }
+                assertEquals(expected, actualWeights, prefix + " " + size);
+            }
+        }
+    }
+
+    private static GoodsSuggestVO suggestion(String text, Long weight) {
+        GoodsSuggestVO suggestion = new GoodsSuggestVO();
+        suggestion.setText(text);
+        suggestion.setWeight(weight);
+        return suggestion;
+    }
+}
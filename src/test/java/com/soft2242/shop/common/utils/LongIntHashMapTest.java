@@ -0,0 +1,56 @@
+package com.soft2242.shop.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+
+    /**
+     * 从很小的初始容量开始多次扩容，扩容后所有计数保持不变，结果与 HashMap 一致
+     */
+    @Test
+    void countsSurviveRepeatedRehash() {
+        LongIntHashMap map = new LongIntHashMap(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 1; i <= 200_000; i++) {
+            // 商品对形式的键，高低 32 位都有值，其中一部分键重复出现
+            long key = ((long) (i % 5_000 + 1) << 32) | (i % 37 + 1);
+            map.addTo(key, i % 3 + 1);
+            expected.merge(key, i % 3 + 1, Integer::sum);
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        Map<Long, Integer> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertEquals(expected, iterated);
+        assertEquals(0, map.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    void addAllMergesCounts() {
+        LongIntHashMap a = new LongIntHashMap(4);
+        LongIntHashMap b = new LongIntHashMap(4);
+        a.addTo(1, 2);
+        a.addTo(2, 3);
+        b.addTo(2, 4);
+        b.addTo(3, 5);
+
+        a.addAll(b);
+
+        assertEquals(3, a.size());
+        assertEquals(2, a.get(1));
+        assertEquals(7, a.get(2));
+        assertEquals(5, a.get(3));
+    }
+
+    @Test
+    void rejectsZeroKey() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap(4).addTo(0, 1));
+    }
+}
@@ -0,0 +1,84 @@
+package com.soft2242.shop.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+
+    private static final int IDS_PER_THREAD = 200_000;
+
+    /**
+     * 多线程同时生成的 id 全部不重复，且每个线程内严格递增；
+     * 每个线程生成的 id 远多于每毫秒的序列号，覆盖序列号用完借用下一毫秒的情况
+     */
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 7);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[THREADS];
+            long[][] ids = new long[THREADS][IDS_PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                long[] own = ids[t];
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < own.length; i++) {
+                        own[i] = generator.nextId();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+
+            long[] all = new long[THREADS * IDS_PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = 1; i < IDS_PER_THREAD; i++) {
+                    assertTrue(ids[t][i] > ids[t][i - 1], "线程内 id 必须递增");
+                }
+                System.arraycopy(ids[t], 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "重复的 id：" + all[i]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 数据中心id和机器id写入固定的位段，切换机器id后立即生效
+     */
+    @Test
+    void idCarriesDatacenterAndWorkerBits() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2, 200);
+        long id = generator.nextId();
+        assertEquals(2, (id >>> 20) & SnowflakeIdGenerator.MAX_DATACENTER_ID);
+        assertEquals(200, (id >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID);
+
+        generator.setWorkerId(3);
+        assertEquals(3, (generator.nextId() >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID);
+    }
+
+    @Test
+    void rejectsOutOfRangeIds() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(4, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(0, 256));
+    }
+}
@@ -0,0 +1,136 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.StatementCounter;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.entity.IndexRecommend;
+import com.soft2242.shop.entity.IndexRecommendTab;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.mapper.IndexRecommendMapper;
+import com.soft2242.shop.mapper.IndexRecommendTabMapper;
+import com.soft2242.shop.query.RecommendByTabGoodsQuery;
+import com.soft2242.shop.service.GoodsService;
+import com.soft2242.shop.vo.IndexTabGoodsVO;
+import com.soft2242.shop.vo.IndexTabRecommendVO;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GoodsServiceImplTest extends IntegrationTestSupport {
+
+    @Autowired
+    private GoodsService goodsService;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private IndexRecommendMapper indexRecommendMapper;
+
+    @Autowired
+    private IndexRecommendTabMapper indexRecommendTabMapper;
+
+    /**
+     * 每个 tab 只返回自己的商品，按 id 分页，总数和页数按 tab 分别统计，没有商品的 tab 返回空页
+     */
+    @Test
+    void tabGoodsArePagedPerTab() {
+        int recommendId = insertRecommend();
+        IndexRecommendTab first = insertTab(recommendId, "tab1");
+        IndexRecommendTab second = insertTab(recommendId, "tab2");
+        IndexRecommendTab empty = insertTab(recommendId, "tab3");
+        List<String> firstGoods = insertGoods(first.getId(), 5);
+        List<String> secondGoods = insertGoods(second.getId(), 2);
+
+        List<IndexTabGoodsVO> page1 = tabRecommend(recommendId, 1, 2).getSubTypes();
+        assertEquals(List.of(first.getId(), second.getId(), empty.getId()),
+            page1.stream().map(IndexTabGoodsVO::getId).collect(Collectors.toList()));
+        assertEquals(firstGoods.subList(0, 2), ids(page1.get(0).getGoodsItems()));
+        assertEquals(secondGoods, ids(page1.get(1).getGoodsItems()));
+        assertEquals(List.of(), ids(page1.get(2).getGoodsItems()));
+
+        List<IndexTabGoodsVO> page3 = tabRecommend(recommendId, 3, 2).getSubTypes();
+        assertEquals(firstGoods.subList(4, 5), ids(page3.get(0).getGoodsItems()));
+        assertEquals(5, page3.get(0).getGoodsItems().getCounts());
+        assertEquals(3, page3.get(0).getGoodsItems().getPages());
+        assertEquals(List.of(), ids(page3.get(1).getGoodsItems()));
+        assertEquals(2, page3.get(1).getGoodsItems().getCounts());
+        assertEquals(1, page3.get(1).getGoodsItems().getPages());
+        assertEquals(0, page3.get(2).getGoodsItems().getCounts());
+        assertEquals(0, page3.get(2).getGoodsItems().getPages());
+    }
+
+    /**
+     * 商品分页和总数各一条查询，语句数不随 tab 数量增加
+     */
+    @Test
+    void goodsStatementsDoNotGrowWithTabs() {
+        for (int tabs : new int[]{1, 6}) {
+            int recommendId = insertRecommend();
+            for (int i = 0; i < tabs; i++) {
+                insertGoods(insertTab(recommendId, "tab" + i).getId(), 3);
+            }
+
+            List<String> statements = StatementCounter.capture(() -> tabRecommend(recommendId, 1, 2));
+
+            long goodsStatements = statements.stream().filter(sql -> sql.contains("t_goods")).count();
+            assertEquals(2, goodsStatements, statements.toString());
+            assertEquals(4, statements.size(), statements.toString());
+        }
+    }
+
+    private IndexTabRecommendVO tabRecommend(int recommendId, int page, int pageSize) {
+        RecommendByTabGoodsQuery query = new RecommendByTabGoodsQuery();
+        query.setSubType(recommendId);
+        query.setPage(page);
+        query.setPageSize(pageSize);
+        return goodsService.getTabRecommendGoodsByTabId(query);
+    }
+
+    private static List<String> ids(PageResult<RecommendGoodsVO> page) {
+        return page.getList().stream().map(RecommendGoodsVO::getId).collect(Collectors.toList());
+    }
+
+    private int insertRecommend() {
+        IndexRecommend recommend = new IndexRecommend();
+        recommend.setName("热门推荐测试");
+        recommend.setCover("cover.jpg");
+        indexRecommendMapper.insert(recommend);
+        return recommend.getId();
+    }
+
+    private IndexRecommendTab insertTab(int recommendId, String name) {
+        IndexRecommendTab tab = new IndexRecommendTab();
+        tab.setRecommendId(recommendId);
+        tab.setName(name);
+        indexRecommendTabMapper.insert(tab);
+        return tab;
+    }
+
+    /**
+     * 插入商品，返回按 id 升序排列的商品id
+     */
+    private List<String> insertGoods(int tabId, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Goods goods = new Goods();
+            goods.setTabId(tabId);
+            goods.setName("热门推荐测试商品" + i);
+            goods.setPrice(10.0);
+            goods.setOldPrice(12.0);
+            goods.setFreight(0.0);
+            goods.setInventory(100);
+            goods.setSalesCount(0);
+            goodsMapper.insert(goods);
+            ids.add(goods.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,81 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.entity.UserOrder;
+import com.soft2242.shop.enums.OrderStatusEnum;
+import com.soft2242.shop.mapper.UserOrderMapper;
+import com.soft2242.shop.service.OrderCancelService;
+import com.soft2242.shop.service.UserOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderCancelServiceImplTest extends IntegrationTestSupport {
+
+    @Autowired
+    private OrderCancelService orderCancelService;
+
+    @Autowired
+    private UserOrderService userOrderService;
+
+    @Autowired
+    private UserOrderMapper userOrderMapper;
+
+    /**
+     * 未登记到超时队列的订单由数据库扫描取消：只取消超时且仍待付款的订单
+     */
+    @Test
+    void sweepCancelsOnlyExpiredUnpaidOrders() {
+        LocalDateTime now = LocalDateTime.now();
+        UserOrder expired = insertOrder(700001, OrderStatusEnum.WAITING_FOR_PAYMENT, now.minusHours(2));
+        UserOrder recent = insertOrder(700001, OrderStatusEnum.WAITING_FOR_PAYMENT, now.minusMinutes(1));
+        UserOrder paid = insertOrder(700001, OrderStatusEnum.WAITING_FOR_SHIPMENT, now.minusHours(2));
+
+        orderCancelService.sweepExpiredOrders();
+
+        assertEquals(OrderStatusEnum.CANCELLED.getValue(), status(expired));
+        assertEquals(OrderStatusEnum.WAITING_FOR_PAYMENT.getValue(), status(recent));
+        assertEquals(OrderStatusEnum.WAITING_FOR_SHIPMENT.getValue(), status(paid));
+    }
+
+    /**
+     * 已被超时取消的订单不能再支付，已支付的订单不会被扫描取消
+     */
+    @Test
+    void payAndSweepAreMutuallyExclusive() {
+        LocalDateTime created = LocalDateTime.now().minusHours(2);
+        UserOrder cancelled = insertOrder(700002, OrderStatusEnum.WAITING_FOR_PAYMENT, created);
+        orderCancelService.sweepExpiredOrders();
+        ServerException e = assertThrows(ServerException.class, () -> userOrderService.payOrder(cancelled.getId()));
+        assertEquals("该订单暂时无法支付", e.getMessage());
+        assertEquals(OrderStatusEnum.CANCELLED.getValue(), status(cancelled));
+
+        UserOrder paid = insertOrder(700002, OrderStatusEnum.WAITING_FOR_PAYMENT, created);
+        userOrderService.payOrder(paid.getId());
+        orderCancelService.sweepExpiredOrders();
+        assertEquals(OrderStatusEnum.WAITING_FOR_SHIPMENT.getValue(), status(paid));
+
+        assertThrows(ServerException.class, () -> userOrderService.payOrder(-1));
+    }
+
+    private UserOrder insertOrder(int userId, OrderStatusEnum status, LocalDateTime createTime) {
+        UserOrder order = new UserOrder();
+        order.setUserId(userId);
+        order.setStatus(status.getValue().byteValue());
+        order.setTotalPrice(10.0);
+        order.setTotalCount(1);
+        order.setTotalFreight(0.0);
+        order.setCreateTime(createTime);
+        userOrderMapper.insert(order);
+        return order;
+    }
+
+    private Integer status(UserOrder order) {
+        return (int) userOrderMapper.selectById(order.getId()).getStatus();
+    }
+}
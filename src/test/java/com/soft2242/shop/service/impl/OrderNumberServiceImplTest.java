@@ -0,0 +1,86 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.common.exception.ServerException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderNumberServiceImplTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private OrderNumberServiceImpl orderNumberService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        orderNumberService = new OrderNumberServiceImpl();
+        ReflectionTestUtils.setField(orderNumberService, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(orderNumberService, "workerLease", 60L);
+        ReflectionTestUtils.setField(orderNumberService, "renewInterval", 20000L);
+        orderNumberService.init();
+    }
+
+    /**
+     * 租约剩余时间不足一个续租间隔时停止发号
+     */
+    @Test
+    void stopsIssuingWhenLeaseIsAboutToExpire() {
+        assertNotNull(orderNumberService.nextOrderNumber());
+
+        ReflectionTestUtils.setField(orderNumberService, "leaseValidUntil", System.currentTimeMillis() - 1);
+        assertThrows(ServerException.class, orderNumberService::nextOrderNumber);
+    }
+
+    /**
+     * 续租时 Redis 异常不会抛出定时任务，也不会延长租约；续租恢复后重新允许发号
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void renewFailureIsLoggedAndDoesNotExtendLease() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+            .thenThrow(new RedisConnectionFailureException("down"));
+        ReflectionTestUtils.setField(orderNumberService, "leaseValidUntil", System.currentTimeMillis() - 1);
+
+        assertDoesNotThrow(orderNumberService::renewLease);
+        assertThrows(ServerException.class, orderNumberService::nextOrderNumber);
+
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(1L);
+        orderNumberService.renewLease();
+        assertNotNull(orderNumberService.nextOrderNumber());
+    }
+
+    /**
+     * 租约丢失时重新抢占机器id，抢占也失败时保持停止发号
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void lostLeaseStopsIssuingUntilNewWorkerIsAcquired() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(0L);
+        when(stringRedisTemplate.opsForValue().setIfAbsent(anyString(), anyString(), any(Duration.class)))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertDoesNotThrow(orderNumberService::renewLease);
+        assertThrows(ServerException.class, orderNumberService::nextOrderNumber);
+    }
+}
@@ -0,0 +1,154 @@
+package com.soft2242.shop.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.entity.UserOrder;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.mapper.UserOrderMapper;
+import com.soft2242.shop.query.OrderGoodsQuery;
+import com.soft2242.shop.service.OrderSubmitService;
+import com.soft2242.shop.service.UserOrderService;
+import com.soft2242.shop.vo.UserOrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class OrderSubmitServiceImplTest extends IntegrationTestSupport {
+
+    @Autowired
+    private OrderSubmitService orderSubmitService;
+
+    @Autowired
+    private UserOrderService userOrderService;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private UserOrderMapper userOrderMapper;
+
+    /**
+     * 同一令牌提交两次只创建一个订单、只扣减一次库存，第二次返回同一个订单id
+     */
+    @Test
+    void sameTokenCreatesOneOrder() {
+        int userId = 600001;
+        Goods goods = insertGoods(10);
+        String token = orderSubmitService.issueToken();
+
+        Integer first = orderSubmitService.submit(userId, token,
+            () -> userOrderService.addGoodsOrder(order(userId, goods)));
+        Integer second = orderSubmitService.submit(userId, token,
+            () -> userOrderService.addGoodsOrder(order(userId, goods)));
+
+        assertEquals(first, second);
+        assertEquals(1, countOrders(userId));
+        assertEquals(9, goodsMapper.selectById(goods.getId()).getInventory());
+    }
+
+    /**
+     * 订单仍在提交时，使用同一令牌的重试被拒绝
+     */
+    @Test
+    void pendingRetryIsRejected() {
+        int userId = 600002;
+        Goods goods = insertGoods(10);
+        String token = orderSubmitService.issueToken();
+
+        orderSubmitService.submit(userId, token, () -> {
+            assertThrows(ServerException.class, () -> orderSubmitService.submit(userId, token,
+                () -> userOrderService.addGoodsOrder(order(userId, goods))));
+            return userOrderService.addGoodsOrder(order(userId, goods));
+        });
+
+        assertEquals(1, countOrders(userId));
+        assertEquals(9, goodsMapper.selectById(goods.getId()).getInventory());
+    }
+
+    /**
+     * 事务提交后的回调出错时订单已经存在：返回订单id，令牌不释放，重试不会再次下单
+     */
+    @Test
+    void failureAfterCommitKeepsOrderAndToken() {
+        int userId = 600003;
+        Goods goods = insertGoods(10);
+        String token = orderSubmitService.issueToken();
+
+        Integer orderId = orderSubmitService.submit(userId, token, () -> {
+            Integer id = userOrderService.addGoodsOrder(order(userId, goods));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    throw new IllegalStateException("提交后的回调失败");
+                }
+            });
+            return id;
+        });
+        Integer retried = orderSubmitService.submit(userId, token, () -> fail("同一令牌不能再次下单"));
+
+        assertEquals(orderId, retried);
+        assertEquals(1, countOrders(userId));
+        assertEquals(9, goodsMapper.selectById(goods.getId()).getInventory());
+    }
+
+    /**
+     * 事务回滚时释放令牌，同一令牌可以重试
+     */
+    @Test
+    void rollbackReleasesToken() {
+        int userId = 600004;
+        Goods goods = insertGoods(0);
+        String token = orderSubmitService.issueToken();
+
+        assertThrows(ServerException.class, () -> orderSubmitService.submit(userId, token,
+            () -> userOrderService.addGoodsOrder(order(userId, goods))));
+        assertEquals(0, countOrders(userId));
+
+        goods.setInventory(1);
+        goodsMapper.updateById(goods);
+        Integer orderId = orderSubmitService.submit(userId, token,
+            () -> userOrderService.addGoodsOrder(order(userId, goods)));
+        assertNotNull(orderId);
+        assertEquals(1, countOrders(userId));
+    }
+
+    private long countOrders(int userId) {
+        return userOrderMapper.selectCount(new LambdaQueryWrapper<UserOrder>().eq(UserOrder::getUserId, userId));
+    }
+
+    private Goods insertGoods(int inventory) {
+        Goods goods = new Goods();
+        goods.setName("幂等提交测试商品");
+        goods.setPrice(10.0);
+        goods.setOldPrice(12.0);
+        goods.setFreight(0.0);
+        goods.setInventory(inventory);
+        goods.setSalesCount(0);
+        goodsMapper.insert(goods);
+        return goods;
+    }
+
+    private UserOrderVO order(int userId, Goods goods) {
+        OrderGoodsQuery orderGoods = new OrderGoodsQuery();
+        orderGoods.setId(Integer.valueOf(goods.getId()));
+        orderGoods.setCount(1);
+        UserOrderVO orderVO = new UserOrderVO();
+        orderVO.setUserId(userId);
+        orderVO.setAddressId(1);
+        orderVO.setDeliveryType(1);
+        orderVO.setPayType(1);
+        orderVO.setPayChannel(1);
+        orderVO.setGoods(List.of(orderGoods));
+        return orderVO;
+    }
+}
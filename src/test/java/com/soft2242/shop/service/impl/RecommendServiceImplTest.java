@@ -0,0 +1,158 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.common.cache.GuessLikeFeed;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.entity.UserOrder;
+import com.soft2242.shop.entity.UserOrderGoods;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.mapper.UserOrderGoodsMapper;
+import com.soft2242.shop.mapper.UserOrderMapper;
+import com.soft2242.shop.service.RecommendService;
+import com.soft2242.shop.vo.RecommendGoodsVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_GUESS_LIKE_USER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecommendServiceImplTest extends IntegrationTestSupport {
+
+    @Autowired
+    private RecommendService recommendService;
+
+    @Autowired
+    private GuessLikeFeed guessLikeFeed;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private UserOrderMapper userOrderMapper;
+
+    @Autowired
+    private UserOrderGoodsMapper userOrderGoodsMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Object target;
+
+    private Object parallelism;
+
+    private Object mergeThreshold;
+
+    @BeforeEach
+    void setUp() {
+        target = AopTestUtils.getTargetObject(recommendService);
+        parallelism = ReflectionTestUtils.getField(target, "parallelism");
+        mergeThreshold = ReflectionTestUtils.getField(target, "mergeThreshold");
+        // 多个分区、每个用户之后都合并计数，覆盖分区边界和增量合并
+        ReflectionTestUtils.setField(target, "parallelism", 3);
+        ReflectionTestUtils.setField(target, "mergeThreshold", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(target, "parallelism", parallelism);
+        ReflectionTestUtils.setField(target, "mergeThreshold", mergeThreshold);
+    }
+
+    /**
+     * 共同购买越多越相似：买过 A 的用户先推荐 B(与 A 共同购买 2 次)再推荐 C(1 次)，已买过的商品不推荐
+     */
+    @Test
+    void neighborsFromCoPurchasesExcludePurchasedGoods() {
+        String a = insertGoods("A");
+        String b = insertGoods("B");
+        String c = insertGoods("C");
+        purchase(700501, a, b);
+        purchase(700502, a, b);
+        purchase(700503, a, c);
+        purchase(700504, a);
+
+        recommendService.rebuild();
+
+        assertEquals(List.of(b, c), recommendations(700504));
+        assertEquals(List.of(b), recommendations(700503));
+        List<String> first = recommendations(700501);
+        assertEquals(List.of(c), first);
+        assertFalse(first.contains(a) || first.contains(b));
+    }
+
+    /**
+     * 有个性化推荐的用户使用个性化列表，没有的用户和未登录用户一样返回全站推荐流
+     */
+    @Test
+    void usersWithoutRecommendationsFallBackToPopularity() {
+        String a = insertGoods("A");
+        String b = insertGoods("B");
+        purchase(700511, a, b);
+        purchase(700512, a);
+
+        recommendService.rebuild();
+        guessLikeFeed.rebuild();
+
+        PageResult<RecommendGoodsVO> personal = guessLikeFeed.getPage(700512, 1, 10);
+        assertEquals(1, personal.getCounts());
+        assertEquals(List.of(b), ids(personal));
+
+        stringRedisTemplate.delete(GOODS_GUESS_LIKE_USER + 700599);
+        PageResult<RecommendGoodsVO> popular = guessLikeFeed.getPage(null, 1, 10);
+        PageResult<RecommendGoodsVO> fallback = guessLikeFeed.getPage(700599, 1, 10);
+        assertTrue(popular.getCounts() > 0);
+        assertEquals(popular.getCounts(), fallback.getCounts());
+        assertEquals(ids(popular), ids(fallback));
+    }
+
+    private List<String> recommendations(int userId) {
+        return stringRedisTemplate.opsForList().range(GOODS_GUESS_LIKE_USER + userId, 0, -1);
+    }
+
+    private static List<String> ids(PageResult<RecommendGoodsVO> page) {
+        return page.getList().stream().map(RecommendGoodsVO::getId).collect(Collectors.toList());
+    }
+
+    private String insertGoods(String name) {
+        Goods goods = new Goods();
+        goods.setName("推荐测试商品" + name);
+        goods.setPrice(10.0);
+        goods.setOldPrice(12.0);
+        goods.setFreight(0.0);
+        goods.setInventory(100);
+        goods.setSalesCount(0);
+        goodsMapper.insert(goods);
+        return goods.getId();
+    }
+
+    private void purchase(int userId, String... goodsIds) {
+        UserOrder order = new UserOrder();
+        order.setUserId(userId);
+        order.setStatus((byte) 2);
+        order.setTotalPrice(10.0);
+        order.setTotalCount(goodsIds.length);
+        order.setTotalFreight(0.0);
+        userOrderMapper.insert(order);
+        for (String goodsId : goodsIds) {
+            UserOrderGoods orderGoods = new UserOrderGoods();
+            orderGoods.setOrderId(order.getId());
+            orderGoods.setGoodsId(goodsId);
+            orderGoods.setName("推荐测试商品");
+            orderGoods.setCount(1);
+            orderGoods.setPrice(10.0);
+            orderGoods.setFreight(0.0);
+            userOrderGoodsMapper.insert(orderGoods);
+        }
+    }
+}
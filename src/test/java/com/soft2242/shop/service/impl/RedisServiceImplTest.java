@@ -0,0 +1,125 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.service.RedisService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisServiceImplTest extends IntegrationTestSupport {
+
+    private static final int KEY_COUNT = 1_000_000;
+
+    private static final int KEEP_COUNT = 1_000;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 100 万个 key 中按通配删除：匹配的 key 全部删除，其他 key 保留；删除期间其他请求的 Redis 延迟保持在较低水平，
+     * 不会像 KEYS 一样阻塞整个 Redis
+     */
+    @Test
+    void removePatternDeletesMillionKeysWithoutBlockingRedis() throws Exception {
+        populate("bulk:", KEY_COUNT);
+        populate("keep:", KEEP_COUNT);
+
+        // 删除期间另一个线程持续 PING，记录最大延迟
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong maxPingNanos = new AtomicLong();
+        CompletableFuture<Void> pinger = CompletableFuture.runAsync(() -> {
+            while (running.get()) {
+                long start = System.nanoTime();
+                stringRedisTemplate.execute(RedisConnection::ping, true);
+                maxPingNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+            }
+        });
+
+        List<Long> progress = new ArrayList<>();
+        long removed;
+        try {
+            removed = redisService.removePattern("bulk:*", progress::add);
+        } finally {
+            running.set(false);
+            pinger.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(KEY_COUNT, removed);
+        assertEquals(KEY_COUNT, progress.get(progress.size() - 1));
+        // 进度按批次回调，且累计值递增
+        assertTrue(progress.size() >= KEY_COUNT / 1000, "progress callbacks: " + progress.size());
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        assertEquals(0, countKeys("bulk:*"));
+        assertEquals(KEEP_COUNT, countKeys("keep:*"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(maxPingNanos.get()) < 200,
+            "max ping latency during removal: " + TimeUnit.NANOSECONDS.toMillis(maxPingNanos.get()) + "ms");
+
+        redisService.removePattern("keep:*");
+    }
+
+    /**
+     * 异步删除在后台线程执行，返回删除数量
+     */
+    @Test
+    void removePatternAsyncReportsCount() throws Exception {
+        populate("async:", 5_000);
+        assertEquals(5_000L, redisService.removePatternAsync("async:*", removed -> {
+        }).get(30, TimeUnit.SECONDS));
+        assertEquals(0, countKeys("async:*"));
+    }
+
+    /**
+     * 每条 MSET 写入 1000 个 key，在管道中批量发送
+     */
+    private void populate(String prefix, int count) {
+        int batchSize = 1000;
+        for (int from = 0; from < count; from += batchSize * 100) {
+            int start = from;
+            stringRedisTemplate.executePipelined((RedisConnection connection) -> {
+                for (int i = start; i < Math.min(start + batchSize * 100, count); i += batchSize) {
+                    Map<byte[], byte[]> batch = new HashMap<>();
+                    for (int j = i; j < Math.min(i + batchSize, count); j++) {
+                        batch.put((prefix + j).getBytes(StandardCharsets.UTF_8), new byte[]{'1'});
+                    }
+                    connection.stringCommands().mSet(batch);
+                }
+                return null;
+            });
+        }
+    }
+
+    private long countKeys(String pattern) {
+        return stringRedisTemplate.execute((RedisConnection connection) -> {
+            long count = 0;
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(10_000).build();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                while (cursor.hasNext()) {
+                    cursor.next();
+                    count++;
+                }
+            }
+            return count;
+        }, true);
+    }
+}
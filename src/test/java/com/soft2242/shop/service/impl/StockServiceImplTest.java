@@ -0,0 +1,186 @@
+package com.soft2242.shop.service.impl;
+
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.enums.StockReserveEnum;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.service.StockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.PROCESSING_SUFFIX;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.STOCK_GOODS;
+import static com.soft2242.shop.common.constant.RedisKeyConstant.STOCK_GOODS_DELTA;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockServiceImplTest extends IntegrationTestSupport {
+
+    private static final String RECONCILE_LOCK = "stock:reconcile:lock";
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Goods goods;
+
+    private Object flashGoodsIds;
+
+    @BeforeEach
+    void setUp() {
+        flashGoodsIds = ReflectionTestUtils.getField(AopTestUtils.getTargetObject(stockService), "flashGoodsIds");
+        goods = new Goods();
+        goods.setName("预扣库存测试商品");
+        goods.setPrice(10.0);
+        goods.setOldPrice(12.0);
+        goods.setFreight(0.0);
+        goods.setInventory(10);
+        goods.setSalesCount(0);
+        goodsMapper.insert(goods);
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(stockService), "flashGoodsIds",
+            Set.of(goods.getId()));
+        preload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(stockService), "flashGoodsIds", flashGoodsIds);
+        stringRedisTemplate.delete(STOCK_GOODS + goods.getId());
+    }
+
+    /**
+     * 预扣和归还同时修改计数器，库存不足时不扣减；非秒杀商品不访问 Redis
+     */
+    @Test
+    void reserveAndReleaseUpdateCounter() {
+        assertEquals("10", counter());
+        assertEquals(StockReserveEnum.SUCCESS, stockService.reserveGoods(goods.getId(), 3));
+        assertEquals("7", counter());
+        assertEquals(StockReserveEnum.INSUFFICIENT, stockService.reserveGoods(goods.getId(), 8));
+        assertEquals("7", counter());
+        stockService.releaseGoods(goods.getId(), 3);
+        assertEquals("10", counter());
+        assertEquals(StockReserveEnum.NOT_MANAGED, stockService.reserveGoods("-1", 1));
+    }
+
+    /**
+     * 预扣量回写到数据库，只回写一次
+     */
+    @Test
+    void reconcileAppliesDeltaOnce() {
+        stockService.reserveGoods(goods.getId(), 4);
+        drain();
+        drain();
+
+        Goods after = goodsMapper.selectById(goods.getId());
+        assertEquals(6, after.getInventory());
+        assertEquals(4, after.getSalesCount());
+    }
+
+    /**
+     * 批次已回写但处理中的 key 未删除(回写提交后进程退出)时，下一轮只删除，不再回写
+     */
+    @Test
+    void appliedBatchIsNotAppliedAgain() {
+        drain();
+        String processingKey = STOCK_GOODS_DELTA + PROCESSING_SUFFIX;
+        String batchId = "00000000000000000000000000000001";
+        goodsMapper.insertStockFlushLog(batchId);
+        stringRedisTemplate.opsForHash().putAll(processingKey, Map.of(goods.getId(), "5", "#batch", batchId));
+
+        drain();
+
+        assertEquals(10, goodsMapper.selectById(goods.getId()).getInventory());
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(processingKey)));
+    }
+
+    /**
+     * 数据库补货后同步计数器：计数器等于数据库库存减去尚未回写的预扣量
+     */
+    @Test
+    void restockReachesCounter() {
+        stockService.reserveGoods(goods.getId(), 2);
+        drain();
+        goodsMapper.updateById(inventory(108));
+        stockService.reserveGoods(goods.getId(), 1);
+
+        preload();
+
+        assertEquals("107", counter());
+        drain();
+        assertEquals(107, goodsMapper.selectById(goods.getId()).getInventory());
+    }
+
+    /**
+     * 其他节点持有的回写锁不会被释放
+     */
+    @Test
+    void reconcileDoesNotReleaseAnotherOwnersLock() {
+        drain();
+        stringRedisTemplate.opsForValue().set(RECONCILE_LOCK, "other");
+        try {
+            stockService.reserveGoods(goods.getId(), 1);
+            stockService.reconcile();
+            assertEquals("other", stringRedisTemplate.opsForValue().get(RECONCILE_LOCK));
+            assertTrue(Boolean.TRUE.equals(stringRedisTemplate.hasKey(STOCK_GOODS_DELTA)));
+        } finally {
+            stringRedisTemplate.delete(RECONCILE_LOCK);
+        }
+        drain();
+        assertEquals(9, goodsMapper.selectById(goods.getId()).getInventory());
+    }
+
+    /**
+     * 回写直到没有待处理的变化量；定时任务可能同时持有锁，等待其完成
+     */
+    private void drain() {
+        for (int i = 0; i < 100; i++) {
+            stockService.reconcile();
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(STOCK_GOODS_DELTA))
+                && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(STOCK_GOODS_DELTA + PROCESSING_SUFFIX))
+                && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(RECONCILE_LOCK))) {
+                return;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        throw new AssertionError("库存变化量未回写完成");
+    }
+
+    /**
+     * 定时回写持有锁时同步会被跳过，等待锁释放后再同步
+     */
+    private void preload() {
+        drain();
+        stockService.preloadGoods(goods.getId());
+    }
+
+    private Goods inventory(int inventory) {
+        Goods update = new Goods();
+        update.setId(goods.getId());
+        update.setInventory(inventory);
+        return update;
+    }
+
+    private String counter() {
+        return stringRedisTemplate.opsForValue().get(STOCK_GOODS + goods.getId());
+    }
+}
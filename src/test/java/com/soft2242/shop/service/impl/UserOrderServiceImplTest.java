@@ -0,0 +1,322 @@
+package com.soft2242.shop.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.StatementCounter;
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.common.result.CursorPageResult;
+import com.soft2242.shop.common.result.PageResult;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.entity.UserOrder;
+import com.soft2242.shop.entity.UserOrderGoods;
+import com.soft2242.shop.entity.UserShippingAddress;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.mapper.UserOrderGoodsMapper;
+import com.soft2242.shop.mapper.UserOrderMapper;
+import com.soft2242.shop.mapper.UserShippingAddressMapper;
+import com.soft2242.shop.query.OrderCursorQuery;
+import com.soft2242.shop.query.OrderGoodsQuery;
+import com.soft2242.shop.query.OrderQuery;
+import com.soft2242.shop.service.UserOrderService;
+import com.soft2242.shop.vo.OrderDetailVO;
+import com.soft2242.shop.vo.UserOrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.soft2242.shop.common.constant.RedisKeyConstant.GOODS_DETAIL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserOrderServiceImplTest extends IntegrationTestSupport {
+
+    @Autowired
+    private UserOrderService userOrderService;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private UserOrderGoodsMapper userOrderGoodsMapper;
+
+    @Autowired
+    private UserOrderMapper userOrderMapper;
+
+    @Autowired
+    private UserShippingAddressMapper userShippingAddressMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 并发提交的订单数远多于库存时，成功的订单数等于库存，库存恰好扣减为0，不会超卖
+     */
+    @Test
+    void concurrentSubmitsSellExactlyTheInventory() throws Exception {
+        int inventory = 50;
+        int submits = 200;
+        Goods goods = insertGoods(inventory);
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < submits; i++) {
+            int userId = i + 1;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    userOrderService.addGoodsOrder(order(userId, goods));
+                    succeeded.incrementAndGet();
+                } catch (ServerException e) {
+                    soldOut.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        Goods after = goodsMapper.selectById(goods.getId());
+        assertEquals(0, after.getInventory());
+        assertEquals(inventory, after.getSalesCount());
+        assertEquals(inventory, succeeded.get());
+        assertEquals(submits - inventory, soldOut.get());
+        // 库存不足的订单整体回滚，不会留下订单商品
+        assertEquals(inventory, userOrderGoodsMapper.selectCount(
+            new LambdaQueryWrapper<UserOrderGoods>().eq(UserOrderGoods::getGoodsId, goods.getId())));
+    }
+
+    /**
+     * 下单扣减库存后清除商品详情缓存；库存不足回滚时不清除
+     */
+    @Test
+    void submitEvictsGoodsDetailCacheAfterCommit() {
+        Goods goods = insertGoods(1);
+        String key = GOODS_DETAIL + goods.getId();
+        stringRedisTemplate.opsForValue().set(key, "{}");
+
+        userOrderService.addGoodsOrder(order(100004, goods));
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(key)));
+
+        stringRedisTemplate.opsForValue().set(key, "{}");
+        try {
+            userOrderService.addGoodsOrder(order(100004, goods));
+        } catch (ServerException ignored) {
+            // 库存已售罄
+        }
+        assertTrue(Boolean.TRUE.equals(stringRedisTemplate.hasKey(key)));
+        stringRedisTemplate.delete(key);
+    }
+
+    /**
+     * 订单列表的语句数与每页条数无关：count、分页查询、收货地址、订单商品各一条
+     */
+    @Test
+    void orderListStatementCountDoesNotDependOnPageSize() {
+        int userId = 100001;
+        UserShippingAddress address = insertAddress(userId);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < 25; i++) {
+            UserOrder order = insertOrder(userId, address.getId(), 1, now.minusMinutes(i));
+            insertOrderGoods(order.getId());
+            insertOrderGoods(order.getId());
+        }
+
+        for (int pageSize : new int[]{5, 20}) {
+            OrderQuery query = new OrderQuery();
+            query.setUserId(userId);
+            query.setPage(1);
+            query.setPageSize(pageSize);
+            StatementCounter.Recorded<PageResult<OrderDetailVO>> recorded =
+                StatementCounter.record(() -> userOrderService.getOrderList(query));
+
+            assertEquals(pageSize, recorded.result().getList().size());
+            assertEquals(25, recorded.result().getCounts());
+            assertEquals(4, recorded.statements().size(), String.join("\n", recorded.statements()));
+            for (OrderDetailVO order : recorded.result().getList()) {
+                assertEquals(2, order.getSkus().size());
+                assertEquals(address.getAddress(), order.getReceiverAddress());
+            }
+        }
+    }
+
+    /**
+     * 游标分页按 (create_time, id) 倒序逐页遍历，创建时间相同的订单也不会重复或遗漏，且不发出 count 查询
+     */
+    @Test
+    void cursorPagingVisitsEveryOrderOnce() {
+        int userId = 100002;
+        UserShippingAddress address = insertAddress(userId);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<UserOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            // 每 4 个订单的创建时间相同，页边界会落在相同时间的订单之间
+            orders.add(insertOrder(userId, address.getId(), i % 3 == 0 ? 2 : 1, now.minusSeconds(i / 4)));
+        }
+        orders.sort(Comparator.comparing(UserOrder::getCreateTime).thenComparing(UserOrder::getId).reversed());
+
+        assertEquals(orders.stream().map(UserOrder::getId).toList(), walkCursor(userId, 0, 5));
+        assertEquals(orders.stream().filter(order -> order.getStatus() == 2).map(UserOrder::getId).toList(),
+            walkCursor(userId, 2, 3));
+    }
+
+    /**
+     * 游标分页实际执行的查询(首页和带游标的后续页)使用 sql/t_user_order_cursor_index.sql 中的联合索引
+     */
+    @Test
+    void cursorQueriesUseCompositeIndex() {
+        int userId = 100003;
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < 50; i++) {
+            insertOrder(userId, null, i % 2 + 1, now.minusMinutes(i));
+        }
+        jdbcTemplate.execute("analyze table t_user_order");
+
+        assertCursorQueriesUse(userId, 2, "idx_user_status_time");
+        assertCursorQueriesUse(userId, 0, "idx_user_time");
+    }
+
+    /**
+     * 翻两页，对每一页查询订单的语句用实际绑定的参数执行 EXPLAIN
+     */
+    private void assertCursorQueriesUse(int userId, int orderType, String index) {
+        String cursor = null;
+        for (int page = 0; page < 2; page++) {
+            OrderCursorQuery query = new OrderCursorQuery();
+            query.setUserId(userId);
+            query.setOrderType(orderType);
+            query.setPageSize(10);
+            query.setCursor(cursor);
+            StatementCounter.Recorded<CursorPageResult<OrderDetailVO>> recorded =
+                StatementCounter.record(() -> userOrderService.getOrderListByCursor(query));
+            cursor = recorded.result().getNextCursor();
+            assertTrue(cursor != null, "订单数不足两页");
+
+            int orderQuery = -1;
+            for (int i = 0; i < recorded.statements().size(); i++) {
+                String statement = recorded.statements().get(i).toLowerCase();
+                if (statement.matches("(?s)select.*from\\s+t_user_order\\s.*")) {
+                    orderQuery = i;
+                    break;
+                }
+            }
+            assertTrue(orderQuery >= 0, String.join("\n", recorded.statements()));
+            String sql = recorded.statements().get(orderQuery);
+            assertEquals(page > 0, sql.contains("create_time <"), sql);
+
+            Map<String, Object> plan = jdbcTemplate.queryForMap("explain " + sql,
+                recorded.parameters().get(orderQuery).toArray());
+            assertEquals(index, plan.get("key"), sql + "\n" + plan);
+            assertFalse(String.valueOf(plan.get("Extra")).contains("filesort"), sql + "\n" + plan);
+        }
+    }
+
+    /**
+     * 从第一页开始按游标翻到最后一页，返回依次取到的订单id
+     */
+    private List<Integer> walkCursor(int userId, int orderType, int pageSize) {
+        List<Integer> ids = new ArrayList<>();
+        Set<String> cursors = new HashSet<>();
+        String cursor = null;
+        do {
+            OrderCursorQuery query = new OrderCursorQuery();
+            query.setUserId(userId);
+            query.setOrderType(orderType);
+            query.setPageSize(pageSize);
+            query.setCursor(cursor);
+            StatementCounter.Recorded<CursorPageResult<OrderDetailVO>> recorded =
+                StatementCounter.record(() -> userOrderService.getOrderListByCursor(query));
+            assertTrue(recorded.statements().stream().noneMatch(sql -> sql.toLowerCase().contains("count(")),
+                String.join("\n", recorded.statements()));
+            recorded.result().getList().forEach(order -> ids.add(order.getId()));
+            cursor = recorded.result().getNextCursor();
+            assertTrue(cursor == null || cursors.add(cursor), "游标重复：" + cursor);
+        } while (cursor != null);
+        return ids;
+    }
+
+    private UserShippingAddress insertAddress(int userId) {
+        UserShippingAddress address = new UserShippingAddress();
+        address.setUserId(userId);
+        address.setReceiver("测试");
+        address.setContact("13800000000");
+        address.setAddress("测试地址" + userId);
+        address.setIsDefault(1);
+        userShippingAddressMapper.insert(address);
+        return address;
+    }
+
+    private UserOrder insertOrder(int userId, Integer addressId, int status, LocalDateTime createTime) {
+        UserOrder order = new UserOrder();
+        order.setUserId(userId);
+        order.setAddressId(addressId);
+        order.setStatus((byte) status);
+        order.setTotalPrice(10.0);
+        order.setTotalCount(1);
+        order.setTotalFreight(0.0);
+        order.setCreateTime(createTime);
+        userOrderMapper.insert(order);
+        return order;
+    }
+
+    private void insertOrderGoods(Integer orderId) {
+        UserOrderGoods orderGoods = new UserOrderGoods();
+        orderGoods.setOrderId(orderId);
+        orderGoods.setGoodsId("1");
+        orderGoods.setName("订单列表测试商品");
+        orderGoods.setCount(1);
+        orderGoods.setPrice(10.0);
+        orderGoods.setFreight(0.0);
+        userOrderGoodsMapper.insert(orderGoods);
+    }
+
+    private Goods insertGoods(int inventory) {
+        Goods goods = new Goods();
+        goods.setName("并发扣减测试商品");
+        goods.setPrice(10.0);
+        goods.setOldPrice(12.0);
+        goods.setFreight(0.0);
+        goods.setInventory(inventory);
+        goods.setSalesCount(0);
+        goodsMapper.insert(goods);
+        return goods;
+    }
+
+    private UserOrderVO order(int userId, Goods goods) {
+        OrderGoodsQuery orderGoods = new OrderGoodsQuery();
+        orderGoods.setId(Integer.valueOf(goods.getId()));
+        orderGoods.setCount(1);
+        UserOrderVO orderVO = new UserOrderVO();
+        orderVO.setUserId(userId);
+        orderVO.setAddressId(1);
+        orderVO.setDeliveryType(1);
+        orderVO.setPayType(1);
+        orderVO.setPayChannel(1);
+        orderVO.setGoods(List.of(orderGoods));
+        return orderVO;
+    }
+}
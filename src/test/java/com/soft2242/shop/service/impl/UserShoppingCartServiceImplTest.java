@@ -0,0 +1,170 @@
+package com.soft2242.shop.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.soft2242.shop.IntegrationTestSupport;
+import com.soft2242.shop.StatementCounter;
+import com.soft2242.shop.common.cache.CartCache;
+import com.soft2242.shop.common.exception.ServerException;
+import com.soft2242.shop.entity.Goods;
+import com.soft2242.shop.entity.UserShoppingCart;
+import com.soft2242.shop.mapper.GoodsMapper;
+import com.soft2242.shop.mapper.UserShoppingCartMapper;
+import com.soft2242.shop.query.CartSelectedQuery;
+import com.soft2242.shop.query.EditCartQuery;
+import com.soft2242.shop.service.GoodsService;
+import com.soft2242.shop.service.UserShoppingCartService;
+import com.soft2242.shop.vo.CartSummaryVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserShoppingCartServiceImplTest extends IntegrationTestSupport {
+
+    @Autowired
+    private UserShoppingCartService userShoppingCartService;
+
+    @Autowired
+    private UserShoppingCartMapper userShoppingCartMapper;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private GoodsService goodsService;
+
+    @Autowired
+    private CartCache cartCache;
+
+    /**
+     * 不能修改其他用户购物车中的商品
+     */
+    @Test
+    void editCartRejectsAnotherUsersItem() {
+        UserShoppingCart cart = insertCart(300001, "1");
+        EditCartQuery query = new EditCartQuery();
+        query.setId(String.valueOf(cart.getId()));
+        query.setUserId(300002);
+        query.setCount(99);
+
+        assertThrows(ServerException.class, () -> userShoppingCartService.editCart(query));
+        assertEquals(1, userShoppingCartMapper.selectById(cart.getId()).getCount());
+    }
+
+    /**
+     * 启用 Redis 购物车时，非数字的购物车id按不存在处理
+     */
+    @Test
+    void editCachedCartRejectsNonNumericId() {
+        ReflectionTestUtils.setField(cartCache, "enabled", true);
+        try {
+            EditCartQuery query = new EditCartQuery();
+            query.setId("abc");
+            query.setUserId(700603);
+            query.setCount(1);
+
+            ServerException e = assertThrows(ServerException.class, () -> userShoppingCartService.editCart(query));
+            assertEquals("购物车信息不存在", e.getMessage());
+        } finally {
+            ReflectionTestUtils.setField(cartCache, "enabled", false);
+        }
+    }
+
+    /**
+     * 全选、部分选中和删除各只发出一条语句，与购物车大小无关；其他用户的购物车不受影响
+     */
+    @Test
+    void bulkOperationsIssueOneStatementRegardlessOfCartSize() {
+        int otherUserId = 300100;
+        UserShoppingCart other = insertCart(otherUserId, "1");
+        for (int size : new int[]{10, 100}) {
+            int userId = 300100 + size;
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                ids.add(insertCart(userId, String.valueOf(i + 1)).getId());
+            }
+            List<Integer> half = ids.subList(0, size / 2);
+
+            List<String> statements =
+                StatementCounter.capture(() -> userShoppingCartService.editCartSelected(true, userId));
+            assertEquals(1, statements.size(), String.join("\n", statements));
+            assertEquals(size, countSelected(userId));
+
+            CartSelectedQuery query = new CartSelectedQuery();
+            query.setUserId(userId);
+            // 混入其他用户的购物车id，不会被修改
+            List<Integer> subset = new ArrayList<>(half);
+            subset.add(other.getId());
+            query.setIds(subset);
+            query.setSelected(false);
+            statements = StatementCounter.capture(() -> userShoppingCartService.editCartSelectedByIds(query));
+            assertEquals(1, statements.size(), String.join("\n", statements));
+            assertEquals(size - half.size(), countSelected(userId));
+
+            statements = StatementCounter.capture(() -> userShoppingCartService.removeCartGoods(userId, subset));
+            assertEquals(1, statements.size(), String.join("\n", statements));
+            assertEquals(size - half.size(), userShoppingCartMapper.selectCount(
+                new LambdaQueryWrapper<UserShoppingCart>().eq(UserShoppingCart::getUserId, userId)));
+        }
+        UserShoppingCart untouched = userShoppingCartMapper.selectById(other.getId());
+        assertNotNull(untouched);
+        assertFalse(untouched.getSelected());
+    }
+
+    /**
+     * 修改商品价格后，已缓存的购物车汇总按新价格重新计算
+     */
+    @Test
+    void priceChangeRecomputesCachedSummary() {
+        int userId = 700101;
+        Goods goods = new Goods();
+        goods.setName("汇总测试商品");
+        goods.setPrice(10.0);
+        goods.setOldPrice(12.0);
+        goods.setFreight(1.0);
+        goods.setInventory(100);
+        goods.setSalesCount(0);
+        goodsMapper.insert(goods);
+        UserShoppingCart cart = insertCart(userId, goods.getId());
+        cart.setCount(2);
+        cart.setSelected(true);
+        userShoppingCartMapper.updateById(cart);
+
+        CartSummaryVO before = userShoppingCartService.getCartSummary(userId);
+        assertEquals(20.0, before.getTotalPrice());
+        assertEquals(1.0, before.getPostFee());
+        // 第二次读取命中缓存
+        assertEquals(20.0, userShoppingCartService.getCartSummary(userId).getTotalPrice());
+
+        goodsService.updatePrice(Integer.valueOf(goods.getId()), 15.0, 2.0);
+
+        CartSummaryVO after = userShoppingCartService.getCartSummary(userId);
+        assertEquals(30.0, after.getTotalPrice());
+        assertEquals(2.0, after.getPostFee());
+        assertEquals(32.0, after.getTotalPayPrice());
+    }
+
+    private long countSelected(int userId) {
+        return userShoppingCartMapper.selectCount(new LambdaQueryWrapper<UserShoppingCart>()
+            .eq(UserShoppingCart::getUserId, userId).eq(UserShoppingCart::getSelected, true));
+    }
+
+    private UserShoppingCart insertCart(int userId, String goodsId) {
+        UserShoppingCart cart = new UserShoppingCart();
+        cart.setUserId(userId);
+        cart.setGoodsId(goodsId);
+        cart.setPrice(10.0);
+        cart.setCount(1);
+        cart.setAttrsText("默认");
+        cart.setSelected(false);
+        userShoppingCartMapper.insert(cart);
+        return cart;
+    }
+}
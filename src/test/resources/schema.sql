@@ -0,0 +1,209 @@
+-- 集成测试使用的表结构，与实体类字段保持一致
+
+drop table if exists t_category;
+create table t_category
+(
+    id           int auto_increment primary key,
+    name         varchar(64)  not null,
+    icon         varchar(255),
+    parent_id    int,
+    is_recommend tinyint      not null default 0,
+    delete_flag  tinyint      not null default 0,
+    create_time  datetime,
+    update_time  datetime
+);
+
+drop table if exists t_goods;
+create table t_goods
+(
+    id               int auto_increment primary key,
+    price            double       not null default 0,
+    old_price        double       not null default 0,
+    cover            varchar(255),
+    category_id      int,
+    tab_id           int,
+    name             varchar(255) not null,
+    description      varchar(1024),
+    inventory        int          not null default 0,
+    discount         double,
+    sales_count      int          not null default 0,
+    freight          double       not null default 0,
+    main_pictures    text,
+    product_pictures text,
+    delete_flag      tinyint      not null default 0,
+    create_time      datetime,
+    update_time      datetime
+);
+
+drop table if exists t_goods_detail;
+create table t_goods_detail
+(
+    id          int auto_increment primary key,
+    goods_id    varchar(32) not null,
+    name        varchar(64),
+    value       varchar(255),
+    delete_flag tinyint     not null default 0,
+    create_time datetime,
+    update_time datetime
+);
+
+drop table if exists t_goods_specification;
+create table t_goods_specification
+(
+    id          int auto_increment primary key,
+    goods_id    varchar(32) not null,
+    name        varchar(64),
+    value       text,
+    delete_flag tinyint     not null default 0,
+    create_time datetime,
+    update_time datetime
+);
+
+drop table if exists t_goods_specification_detail;
+create table t_goods_specification_detail
+(
+    id          int auto_increment primary key,
+    goods_id    varchar(32) not null,
+    cover       varchar(255),
+    inventory   int         not null default 0,
+    price       double,
+    old_price   double,
+    specs       text,
+    delete_flag tinyint     not null default 0,
+    create_time datetime,
+    update_time datetime
+);
+
+drop table if exists t_index_carousel;
+create table t_index_carousel
+(
+    id          int auto_increment primary key,
+    img_url     varchar(255),
+    href_url    varchar(255),
+    type        tinyint,
+    delete_flag tinyint not null default 0,
+    create_time datetime,
+    update_time datetime
+);
+
+drop table if exists t_index_recommend;
+create table t_index_recommend
+(
+    id          int auto_increment primary key,
+    name        varchar(64),
+    description varchar(255),
+    cover       varchar(255),
+    pictures    text,
+    delete_flag tinyint not null default 0,
+    create_time datetime,
+    update_time datetime
+);
+
+drop table if exists t_index_recommend_tab;
+create table t_index_recommend_tab
+(
+    id           int auto_increment primary key,
+    recommend_id int,
+    name         varchar(64),
+    delete_flag  tinyint not null default 0,
+    create_time  datetime,
+    update_time  datetime
+);
+
+drop table if exists t_user;
+create table t_user
+(
+    id            int auto_increment primary key,
+    account       varchar(64),
+    nickname      varchar(64),
+    mobile        varchar(32),
+    open_id       varchar(64),
+    avatar        varchar(255),
+    password      varchar(128),
+    salt          varchar(64),
+    gender        tinyint,
+    profession    varchar(64),
+    province_code varchar(16),
+    city_code     varchar(16),
+    county_code   varchar(16),
+    birthday      datetime,
+    delete_flag   tinyint not null default 0,
+    create_time   datetime,
+    update_time   datetime
+);
+
+drop table if exists t_user_order;
+create table t_user_order
+(
+    id                     int auto_increment primary key,
+    user_id                int         not null,
+    address_id             int,
+    total_price            double,
+    total_count            int,
+    total_freight          double,
+    order_number           varchar(64),
+    status                 tinyint     not null,
+    delivery_time_type     tinyint,
+    buyer_message          varchar(255),
+    pay_type               tinyint,
+    pay_channel            tinyint,
+    cancel_reason          varchar(255),
+    delete_flag            tinyint     not null default 0,
+    create_time            datetime,
+    update_time            datetime,
+    pay_time               datetime,
+    consign_time           datetime,
+    arrival_estimated_time datetime,
+    end_time               datetime,
+    close_time             datetime
+);
+
+drop table if exists t_user_order_goods;
+create table t_user_order_goods
+(
+    id          int auto_increment primary key,
+    order_id    int          not null,
+    goods_id    varchar(32)  not null,
+    name        varchar(255),
+    count       int          not null,
+    cover       varchar(255),
+    attrs_text  varchar(255),
+    price       double,
+    freight     double,
+    delete_flag tinyint      not null default 0,
+    create_time datetime,
+    update_time datetime,
+    key idx_order_id (order_id)
+);
+
+drop table if exists t_user_shipping_address;
+create table t_user_shipping_address
+(
+    id            int auto_increment primary key,
+    user_id       int     not null,
+    receiver      varchar(64),
+    contact       varchar(32),
+    province_code varchar(16),
+    city_code     varchar(16),
+    county_code   varchar(16),
+    address       varchar(255),
+    is_default    int,
+    delete_flag   tinyint not null default 0,
+    create_time   datetime,
+    update_time   datetime
+);
+
+drop table if exists t_user_shopping_cart;
+create table t_user_shopping_cart
+(
+    id          int auto_increment primary key,
+    user_id     int         not null,
+    goods_id    varchar(32) not null,
+    price       double,
+    count       int         not null,
+    attrs_text  varchar(255),
+    selected    tinyint(1)  not null default 1,
+    delete_flag tinyint     not null default 0,
+    create_time datetime,
+    update_time datetime
+);